@@ -0,0 +1,77 @@
+package typing_speed_test.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import typing_speed_test.analytics.AlignmentScore;
+import typing_speed_test.analytics.AlignmentScorer;
+import typing_speed_test.data.TextLoader;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the accuracy calculation done when a test finishes, which aligns the typed words with the displayed ones.
+ * The typed text is the displayed text with some words misspelled, skipped or typed twice.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AccuracyBenchmark {
+
+    @Param({"60", "360"})
+    private int words;
+
+    @Param({"0.0", "0.1"})
+    private double errorRate;
+
+    private final AlignmentScorer scorer = new AlignmentScorer();
+    private String typed;
+    private String original;
+
+    /**
+     * Generates the displayed text and the typed text with errors.
+     *
+     * @throws IOException if the text cannot be loaded
+     */
+    @Setup
+    public void setUp() throws IOException {
+        TextLoader loader = new TextLoader("English", 1);
+        while (loader.getEmittedWordCount() < words) {
+            loader.getNext();
+        }
+        original = loader.getEmittedText();
+
+        SplittableRandom random = new SplittableRandom(1);
+        StringBuilder sb = new StringBuilder();
+        for (String word : original.split(" ")) {
+            double roll = random.nextDouble();
+            if (roll < errorRate / 3) {
+                continue; // Skipped word
+            }
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            if (roll < errorRate * 2 / 3) {
+                sb.append(word, 0, word.length() - 1).append('x'); // Misspelled word
+            } else if (roll < errorRate) {
+                sb.append(word).append(' ').append(word); // Word typed twice
+            } else {
+                sb.append(word);
+            }
+        }
+        typed = sb.toString();
+    }
+
+    /**
+     * Scores the typed text against the displayed one.
+     *
+     * @return the score
+     */
+    @Benchmark
+    public AlignmentScore score() {
+        return scorer.score(typed, original);
+    }
+}
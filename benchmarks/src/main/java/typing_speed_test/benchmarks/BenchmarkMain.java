@@ -0,0 +1,30 @@
+package typing_speed_test.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line options and always attaches the GC profiler,
+ * so every result reports the allocation rate next to the operations per second.
+ */
+public class BenchmarkMain {
+
+    /**
+     * Runs the benchmarks selected by the command line.
+     *
+     * @param args JMH command line options, for example a regular expression selecting benchmarks
+     * @throws CommandLineOptionException if the options cannot be parsed
+     * @throws RunnerException            if a benchmark fails
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
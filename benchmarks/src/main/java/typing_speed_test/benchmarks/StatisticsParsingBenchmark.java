@@ -0,0 +1,103 @@
+package typing_speed_test.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import typing_speed_test.data.ResultsTextParser;
+import typing_speed_test.data.StatisticsData;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing a whole history of results in the text format, line by line with StatisticsData.fromString
+ * and from a file with the streaming parser, sequentially and in parallel.
+ * The history is synthetic.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatisticsParsingBenchmark {
+    private static final String[] LANGUAGES = {"English", "Czech", "Russian", "Spanish"};
+    private static final int[] DURATIONS = {15, 30, 60, 120};
+
+    @Param({"1000", "100000"})
+    private int results;
+
+    private String[] lines;
+    private Path file;
+    private final ResultsTextParser parser = new ResultsTextParser();
+
+    /**
+     * Generates the synthetic history and writes it into a temporary file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(1);
+        lines = new String[results];
+        for (int i = 0; i < results; i++) {
+            lines[i] = "Correct words typed: " + random.nextInt(10, 200) + ", WPM: " + random.nextInt(10, 150) +
+                    ", Accuracy over words: " + String.format("%.2f%%", random.nextDouble(50, 100)) +
+                    ", Accuracy over letters: " + String.format("%.2f%%", random.nextDouble(50, 100)) +
+                    ", Duration: " + DURATIONS[random.nextInt(DURATIONS.length)] +
+                    ", Language: " + LANGUAGES[random.nextInt(LANGUAGES.length)];
+        }
+        file = Files.createTempFile("typing_results", ".txt");
+        Files.write(file, Arrays.asList(lines));
+    }
+
+    /**
+     * Deletes the temporary file.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Parses every line of the history.
+     *
+     * @param blackhole consumes the parsed results
+     */
+    @Benchmark
+    public void parseHistory(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(StatisticsData.fromString(line));
+        }
+    }
+
+    /**
+     * Streams the history file through the parser without creating objects per line.
+     *
+     * @param blackhole consumes the parsed values
+     * @throws IOException if the file cannot be read
+     */
+    @Benchmark
+    public void parseStreaming(Blackhole blackhole) throws IOException {
+        parser.parse(file, (enteredWords, wpm, accuracyWords, accuracyLetters, duration, language) -> {
+            blackhole.consume(wpm);
+            blackhole.consume(language);
+        });
+    }
+
+    /**
+     * Parses the history file in parts in the fork/join pool into StatisticsData objects.
+     *
+     * @return the parsed results
+     * @throws IOException if the file cannot be read
+     */
+    @Benchmark
+    public ResultsTextParser.ParsedResults parseParallel() throws IOException {
+        return ResultsTextParser.parseParallel(file);
+    }
+}
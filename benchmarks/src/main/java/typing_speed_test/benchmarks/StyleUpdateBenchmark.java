@@ -0,0 +1,68 @@
+package typing_speed_test.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import typing_speed_test.data.TextLoader;
+import typing_speed_test.management.GlyphPromptView;
+import typing_speed_test.management.StyledPromptView;
+import typing_speed_test.session.ChunkView;
+import typing_speed_test.session.InputBuffer;
+import typing_speed_test.session.TypingSession;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a keystroke typed into a chunk which already has a typed prefix and deleted again,
+ * which restyles the chunk twice, with the prompt displayed by each of the prompt views.
+ * The views are never shown on screen, so the styled one works on its document only.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class StyleUpdateBenchmark {
+
+    @Param({"0", "10", "50", "100"})
+    private int prefixLength;
+
+    @Param({"styled", "glyph", "none"})
+    private String view;
+
+    private InputBuffer input;
+    private int wrongChar;
+
+    /**
+     * Starts a session and types the prefix of its first chunk correctly.
+     *
+     * @throws IOException if the text cannot be loaded
+     */
+    @Setup
+    public void setUp() throws IOException {
+        ChunkView chunkView;
+        switch (view) {
+            case "styled" -> chunkView = new StyledPromptView();
+            case "glyph" -> chunkView = new GlyphPromptView();
+            default -> chunkView = ChunkView.NONE;
+        }
+        TypingSession session = new TypingSession(chunkView);
+        input = new InputBuffer(session);
+        session.start(new TextLoader("English", 1), input, 0);
+
+        int length = Math.min(prefixLength, session.getCurrentWords().length() - 2);
+        for (int i = 0; i < length; i++) {
+            input.type(session.expectedNext(), i);
+        }
+        wrongChar = session.expectedNext() == 'x' ? 'y' : 'x';
+    }
+
+    /**
+     * Types a wrong character after the prefix and deletes it.
+     */
+    @Benchmark
+    public void typeAndDelete() {
+        input.type(wrongChar, 0);
+        input.backspace(0);
+    }
+}
@@ -0,0 +1,59 @@
+package typing_speed_test.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import typing_speed_test.data.TextLoader;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the creation of a loader for a new test and the generation of chunks of words.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TextLoaderBenchmark {
+
+    @Param({"English", "Russian"})
+    private String language;
+
+    @Param({"SHUFFLE", "WEIGHTED"})
+    private TextLoader.Mode mode;
+
+    private TextLoader loader;
+    private long seed;
+
+    /**
+     * Creates the loader used by the chunk benchmark, which also caches the words of the language.
+     *
+     * @throws IOException if the text cannot be loaded
+     */
+    @Setup
+    public void setUp() throws IOException {
+        loader = new TextLoader(language, mode, 1);
+    }
+
+    /**
+     * Creates a loader with a new seed, as done at the start of every test.
+     *
+     * @return the created loader
+     * @throws IOException if the text cannot be loaded
+     */
+    @Benchmark
+    public TextLoader construct() throws IOException {
+        return new TextLoader(language, mode, seed++);
+    }
+
+    /**
+     * Generates the next chunk of words.
+     *
+     * @return the chunk
+     */
+    @Benchmark
+    public String getNext() {
+        return loader.getNext();
+    }
+}
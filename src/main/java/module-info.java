@@ -1,4 +1,5 @@
 module cz.cuni.mff.java.app {
     requires java.desktop;
+    requires jdk.jfr;
     requires org.jfree.jfreechart;
 }
\ No newline at end of file
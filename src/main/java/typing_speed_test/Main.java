@@ -1,19 +1,35 @@
 package typing_speed_test;
 
+import typing_speed_test.analytics.BigramLatencyRecorder;
+import typing_speed_test.analytics.BigramLatencyStats;
+import typing_speed_test.analytics.KeystrokeRecorder;
+import typing_speed_test.analytics.LiveMetrics;
+import typing_speed_test.data.BigramLatencyStore;
+import typing_speed_test.data.DurabilityPolicy;
 import typing_speed_test.data.ResultsRecorder;
+import typing_speed_test.diagnostics.LatencyMonitor;
+import typing_speed_test.management.InputTracker;
+import typing_speed_test.management.GlyphPromptView;
+import typing_speed_test.management.PromptView;
 import typing_speed_test.management.ResultsDisplayManager;
 import typing_speed_test.management.StatisticsDisplayManager;
-import typing_speed_test.management.TextDisplayManager;
+import typing_speed_test.management.StyledPromptView;
 import typing_speed_test.data.TextLoader;
+import typing_speed_test.session.TypingSession;
 
 import javax.swing.*;
-import javax.swing.text.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main application class for a typing speed test program.
@@ -22,11 +38,24 @@ import java.util.Objects;
 public class Main {
 
     private JFrame frame;
-    private JTextPane textPane;
-    private TextDisplayManager textDisplayManager;
+    private PromptView promptView;
+    private TypingSession session;
+    private InputTracker inputTracker;
+    private final KeystrokeRecorder keystrokeRecorder = new KeystrokeRecorder();
+    private final BigramLatencyRecorder bigramLatencyRecorder = new BigramLatencyRecorder();
+    private final BigramLatencyStore bigramLatencyStore;
+    private final LatencyMonitor latencyMonitor = new LatencyMonitor();
+    // Writes the session files and bigram latencies of finished tests, so the event dispatch thread never waits for the disk
+    private final ExecutorService fileWriter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
     private JTextArea inputArea;
     private JLabel timerLabel;
-    private JComboBox<String> durationComboBox, languageComboBox;
+    private JLabel liveMetricsLabel;
+    private JLabel latencyLabel;
+    private JComboBox<String> durationComboBox, languageComboBox, modeComboBox;
     private JButton startButton, showStatsButton;
     private Timer timer;
     private int timeLeft;
@@ -37,16 +66,39 @@ public class Main {
      * Constructor to initialize the main application.
      */
     public Main() {
-        // Filename for storing results
-        ResultsRecorder resultsRecorder = new ResultsRecorder("typing_results.txt");
+        // Filename for storing results, forced to the disk as configured
+        DurabilityPolicy durability = parseDurability(System.getProperty("typing.durability", "EVERY_RECORD"));
+        ResultsRecorder resultsRecorder = new ResultsRecorder("typing_results", durability,
+                Long.getLong("typing.durability.interval", 1000));
+        // Results older than the retention window are rolled up into daily and weekly aggregates, 0 keeps them all
+        long retentionDays = Long.getLong("typing.retention.days", 365);
+        if (retentionDays > 0) {
+            resultsRecorder.scheduleCompaction(TimeUnit.DAYS.toMillis(retentionDays));
+        }
+        bigramLatencyStore = new BigramLatencyStore(resultsRecorder.getResultsPath().getParent());
 
         initializeUI();
 
-        statisticsDisplayManager = new StatisticsDisplayManager(frame, resultsRecorder);
+        statisticsDisplayManager = new StatisticsDisplayManager(frame, resultsRecorder, bigramLatencyStore);
         resultsDisplayManager = new ResultsDisplayManager(frame, resultsRecorder);
 
     }
 
+    /**
+     * Parses the durability policy given on the command line, ignoring its case.
+     *
+     * @param value the name of the policy
+     * @return the policy, or EVERY_RECORD if the name is unknown
+     */
+    private static DurabilityPolicy parseDurability(String value) {
+        try {
+            return DurabilityPolicy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown durability policy " + value + ", using EVERY_RECORD");
+            return DurabilityPolicy.EVERY_RECORD;
+        }
+    }
+
     /**
      * Initializes the user interface components and layouts.
      */
@@ -55,23 +107,28 @@ public class Main {
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setLayout(new BorderLayout());
 
-        textPane = new JTextPane();
-        textPane.setEditable(false);
-        textPane.setPreferredSize(new Dimension(800, 200));
-
-        StyledDocument doc = textPane.getStyledDocument();
-        SimpleAttributeSet centerAttr = new SimpleAttributeSet();
-        StyleConstants.setAlignment(centerAttr, StyleConstants.ALIGN_CENTER);
-        doc.setParagraphAttributes(0, doc.getLength(), centerAttr, true);
+        // The custom painted prompt is used unless the text pane is requested
+        if ("textpane".equals(System.getProperty("typing.prompt"))) {
+            promptView = new StyledPromptView();
+        } else {
+            promptView = new GlyphPromptView();
+        }
 
-        textDisplayManager = new TextDisplayManager(textPane);
+        session = new TypingSession(promptView);
+        session.addKeystrokeListener(keystrokeRecorder);
+        session.addKeystrokeListener(bigramLatencyRecorder);
 
         inputArea = new JTextArea();
-        inputArea.addKeyListener(new KeyAdapter() {
-            @Override
-            public void keyReleased(KeyEvent e) {
-                textDisplayManager.updateTextStyles(inputArea.getText().trim());
+        inputArea.setEditable(false);
+        inputTracker = new InputTracker(session, inputArea.getDocument());
+
+        // Keys typed into the input area are timed until the prompt is painted
+        promptView.setLatencyMonitor(latencyMonitor);
+        KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventDispatcher(e -> {
+            if (e.getID() == KeyEvent.KEY_TYPED && e.getComponent() == inputArea && inputArea.isEditable()) {
+                latencyMonitor.keyReceived(e.getKeyChar(), e.getWhen(), System.nanoTime());
             }
+            return false;
         });
 
         inputArea.setFont(new Font("SansSerif", Font.PLAIN, 20));
@@ -79,6 +136,9 @@ public class Main {
         timerLabel = new JLabel("Time: -- seconds", JLabel.CENTER);
         timerLabel.setFont(new Font("SansSerif", Font.BOLD, 20));
 
+        liveMetricsLabel = new JLabel("WPM: --  Accuracy: --", JLabel.CENTER);
+        liveMetricsLabel.setFont(new Font("SansSerif", Font.PLAIN, 16));
+
         startButton = new JButton("Start");
         startButton.addActionListener(this::startTest);
 
@@ -91,14 +151,27 @@ public class Main {
         String[] languages = {"English", "Czech", "Russian", "Spanish"};
         languageComboBox = new JComboBox<>(languages);
 
+        String[] modes = {"Shuffled", "By frequency"};
+        modeComboBox = new JComboBox<>(modes);
+
         JPanel controlPanel = new JPanel();
         controlPanel.add(timerLabel);
+        controlPanel.add(liveMetricsLabel);
+
+        // The latency overlay is shown only when requested for debugging
+        if (Boolean.getBoolean("typing.latency")) {
+            latencyLabel = new JLabel("Key to paint: --", JLabel.CENTER);
+            latencyLabel.setFont(new Font("Monospaced", Font.PLAIN, 12));
+            frame.add(latencyLabel, BorderLayout.EAST);
+            new Timer(500, e -> updateLatencyLabel()).start();
+        }
         controlPanel.add(durationComboBox);
         controlPanel.add(languageComboBox);
+        controlPanel.add(modeComboBox);
         controlPanel.add(startButton);
         controlPanel.add(showStatsButton);
 
-        frame.add(new JScrollPane(textPane), BorderLayout.NORTH);
+        frame.add(new JScrollPane(promptView.getComponent()), BorderLayout.NORTH);
         frame.add(new JScrollPane(inputArea), BorderLayout.CENTER);
         frame.add(controlPanel, BorderLayout.SOUTH);
 
@@ -122,9 +195,11 @@ public class Main {
 
         try {
             assert selectedLanguage != null;
-            TextLoader textLoader = new TextLoader(selectedLanguage);
-            textDisplayManager.setText(textLoader);
-            textDisplayManager.updateCount();
+            TextLoader.Mode mode = modeComboBox.getSelectedIndex() == 1 ? TextLoader.Mode.WEIGHTED : TextLoader.Mode.SHUFFLE;
+            TextLoader textLoader = new TextLoader(selectedLanguage, mode, ThreadLocalRandom.current().nextLong());
+            session.start(textLoader, inputTracker, System.nanoTime());
+            keystrokeRecorder.start(System.nanoTime());
+            bigramLatencyRecorder.start();
 
             inputArea.setEditable(true);
             inputArea.setText("");
@@ -136,11 +211,13 @@ public class Main {
             startButton.setEnabled(false);
             durationComboBox.setEnabled(false);
             languageComboBox.setEnabled(false);
+            modeComboBox.setEnabled(false);
             showStatsButton.setEnabled(false);
 
             timer = new Timer(1000, event -> {
                 timeLeft--;
                 timerLabel.setText("Time: " + timeLeft + " seconds");
+                updateLiveMetrics();
                 if (timeLeft <= 0) {
                     timer.stop();
 
@@ -148,9 +225,14 @@ public class Main {
                     startButton.setEnabled(true);
                     durationComboBox.setEnabled(true);
                     languageComboBox.setEnabled(true);
+                    modeComboBox.setEnabled(true);
                     showStatsButton.setEnabled(true);
 
-                    resultsDisplayManager.showResults(inputArea.getText().trim(), textLoader.getText(), duration, selectedLanguage);
+                    saveKeystrokes(textLoader, duration);
+                    // The recorder starts new statistics for the next test, so these are only read by the writer
+                    BigramLatencyStats bigrams = bigramLatencyRecorder.getStats();
+                    fileWriter.execute(() -> bigramLatencyStore.merge(selectedLanguage, bigrams));
+                    resultsDisplayManager.showResults(session.finish(duration));
                 }
             });
 
@@ -161,6 +243,53 @@ public class Main {
         }
     }
 
+    /**
+     * Writes the keystrokes recorded during the test into a session file in the user's home on a background thread,
+     * keeping only the newest session files.
+     *
+     * @param textLoader the loader which provided the text of the test
+     * @param duration   the duration of the test in seconds
+     */
+    private void saveKeystrokes(TextLoader textLoader, int duration) {
+        ByteBuffer session = keystrokeRecorder.encode(textLoader, duration);
+        int maxFiles = Integer.getInteger("typing.sessions.max", 1000);
+        fileWriter.execute(() -> {
+            try {
+                KeystrokeRecorder.write(Paths.get(System.getProperty("user.home"), "typing_sessions"), session, maxFiles);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Shows the words per minute and accuracy of the running test.
+     */
+    private void updateLiveMetrics() {
+        LiveMetrics metrics = session.getLiveMetrics();
+        liveMetricsLabel.setText("WPM: " + metrics.getWpm(System.nanoTime()) +
+                "  Accuracy: " + String.format("%.0f%%", metrics.getAccuracy()));
+    }
+
+    /**
+     * Shows the rolling percentiles of the keystroke to paint latency and of the delay of key events.
+     */
+    private void updateLatencyLabel() {
+        latencyLabel.setText(String.format("<html>Key to paint<br>p50 %s p99 %s<br>EDT queue delay<br>p50 %s p99 %s</html>",
+                formatLatency(latencyMonitor.getPaintLatency(50)), formatLatency(latencyMonitor.getPaintLatency(99)),
+                formatLatency(latencyMonitor.getQueueDelay(50)), formatLatency(latencyMonitor.getQueueDelay(99))));
+    }
+
+    /**
+     * Formats a latency for the latency overlay.
+     *
+     * @param nanos the latency in nanoseconds, or -1 if unknown
+     * @return the latency in milliseconds
+     */
+    private static String formatLatency(long nanos) {
+        return nanos < 0 ? "--" : String.format("%.1f ms", nanos / 1e6);
+    }
+
     /**
      * The main method to launch the application.
      *
@@ -0,0 +1,122 @@
+package typing_speed_test.analytics;
+
+/**
+ * Result of aligning the text typed by the user with the text displayed for typing.
+ * Words are counted as matched, substituted, inserted (typed but not displayed) or
+ * deleted (displayed but skipped), letters by the edit distance of the aligned words.
+ */
+public class AlignmentScore {
+    private final int typedWords;
+    private final int matchedWords;
+    private final int substitutedWords;
+    private final int insertedWords;
+    private final int deletedWords;
+    private final int typedLetters;
+    private final int correctLetters;
+    private final int letterErrors;
+
+    /**
+     * Constructs a new instance of AlignmentScore.
+     *
+     * @param typedWords       number of words typed by the user
+     * @param matchedWords     number of typed words equal to their aligned word
+     * @param substitutedWords number of typed words different from their aligned word
+     * @param insertedWords    number of typed words without an aligned word
+     * @param deletedWords     number of displayed words skipped by the user
+     * @param typedLetters     number of letters typed by the user, without spaces
+     * @param correctLetters   number of typed letters not involved in any edit
+     * @param letterErrors     total edit distance of the aligned words plus the letters of inserted words
+     */
+    AlignmentScore(int typedWords, int matchedWords, int substitutedWords, int insertedWords, int deletedWords,
+                   int typedLetters, int correctLetters, int letterErrors) {
+        this.typedWords = typedWords;
+        this.matchedWords = matchedWords;
+        this.substitutedWords = substitutedWords;
+        this.insertedWords = insertedWords;
+        this.deletedWords = deletedWords;
+        this.typedLetters = typedLetters;
+        this.correctLetters = correctLetters;
+        this.letterErrors = letterErrors;
+    }
+
+    /**
+     * Returns the number of words typed by the user.
+     *
+     * @return the number of typed words
+     */
+    public int getTypedWords() {
+        return typedWords;
+    }
+
+    /**
+     * Returns the number of typed words equal to the displayed word they are aligned with.
+     *
+     * @return the number of matched words
+     */
+    public int getMatchedWords() {
+        return matchedWords;
+    }
+
+    /**
+     * Returns the number of typed words different from the displayed word they are aligned with.
+     *
+     * @return the number of substituted words
+     */
+    public int getSubstitutedWords() {
+        return substitutedWords;
+    }
+
+    /**
+     * Returns the number of extra typed words which are not aligned with any displayed word.
+     *
+     * @return the number of inserted words
+     */
+    public int getInsertedWords() {
+        return insertedWords;
+    }
+
+    /**
+     * Returns the number of displayed words skipped by the user.
+     *
+     * @return the number of deleted words
+     */
+    public int getDeletedWords() {
+        return deletedWords;
+    }
+
+    /**
+     * Returns the number of letters typed by the user, not counting spaces.
+     *
+     * @return the number of typed letters
+     */
+    public int getTypedLetters() {
+        return typedLetters;
+    }
+
+    /**
+     * Returns the number of single letter insertions, deletions and substitutions needed to correct the typed words.
+     *
+     * @return the number of letter errors
+     */
+    public int getLetterErrors() {
+        return letterErrors;
+    }
+
+    /**
+     * Returns the accuracy over words.
+     *
+     * @return the percentage of typed words which match their displayed word
+     */
+    public double getAccuracyWords() {
+        return typedWords > 0 ? (double) matchedWords / typedWords * 100 : 0.0;
+    }
+
+    /**
+     * Returns the accuracy over letters.
+     *
+     * @return the percentage of typed letters which are correct
+     */
+    public double getAccuracyLetters() {
+        return typedLetters > 0 ? (double) correctLetters / typedLetters * 100 : 0.0;
+    }
+}
@@ -0,0 +1,335 @@
+package typing_speed_test.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Scores typed text by aligning it with the text displayed for typing.
+ * The words are aligned by a minimum edit distance over whole words, so a skipped or extra word
+ * affects only itself instead of everything after it. Only alignments within a band of
+ * {@value #BAND} words around the diagonal are considered, which keeps the cost linear in the
+ * number of typed words. Typed words more than {@value #BAND} words past the end of the reference cannot
+ * be aligned with it and count as extra words. Every typed word which differs from its
+ * aligned word is then compared letter by letter with Myers' bit-parallel edit distance.
+ * <p>
+ * The scorer reuses its buffers between calls and is therefore not thread-safe;
+ * every thread should use its own instance.
+ */
+public class AlignmentScorer {
+    private static final byte MATCH = 0;
+    private static final byte SUBSTITUTE = 1;
+    private static final byte INSERT = 2;
+    private static final byte DELETE = 3;
+    private static final int PEQ_SLOTS = 128;
+    private static final int BAND = 32;
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    private final Words typedWords = new Words();
+    private final Words referenceWords = new Words();
+    private int[] previousRow = new int[0];
+    private int[] currentRow = new int[0];
+    private byte[] moves = new byte[0];
+
+    // Match masks of the pattern letters for Myers' algorithm, valid if their stamp equals peqGeneration
+    private final char[] peqChars = new char[PEQ_SLOTS];
+    private final long[] peqMasks = new long[PEQ_SLOTS];
+    private final int[] peqStamps = new int[PEQ_SLOTS];
+    private int peqGeneration;
+
+    /**
+     * Aligns the typed text with the reference text and counts the differences.
+     * Reference words following the last aligned one are considered not yet reached rather than skipped.
+     *
+     * @param typed     the text typed by the user
+     * @param reference the text displayed for typing
+     * @return the score of the typed text
+     */
+    public AlignmentScore score(CharSequence typed, CharSequence reference) {
+        typedWords.split(typed);
+        referenceWords.split(reference);
+        int typedCount = typedWords.count;
+        int n = referenceWords.count;
+        // Only the typed words within the BAND of the reference are aligned, so the buffers stay linear
+        int m = Math.min(typedCount, n + BAND);
+        int width = 2 * BAND + 1;
+
+        if (previousRow.length < n + 2) {
+            previousRow = new int[n + 2];
+            currentRow = new int[n + 2];
+        }
+        if (moves.length < (m + 1) * width) {
+            moves = new byte[(m + 1) * width];
+        }
+
+        // Word level edit distance within the BAND, remembering the move which led to every cell
+        for (int j = 0; j <= Math.min(n, BAND); j++) {
+            previousRow[j] = j;
+            moves[BAND + j] = DELETE;
+        }
+        previousRow[Math.min(n, BAND) + 1] = INFINITY;
+        for (int i = 1; i <= m; i++) {
+            int low = Math.max(0, i - BAND);
+            int high = Math.min(n, i + BAND);
+            if (low == 0) {
+                currentRow[0] = i;
+                moves[i * width + BAND - i] = INSERT;
+                low = 1;
+            } else {
+                currentRow[low - 1] = INFINITY;
+            }
+            for (int j = low; j <= high; j++) {
+                boolean equal = typedWords.sameWord(i - 1, typed, referenceWords, j - 1, reference);
+                int best = previousRow[j - 1] + (equal ? 0 : 1);
+                byte move = equal ? MATCH : SUBSTITUTE;
+                if (previousRow[j] + 1 < best) {
+                    best = previousRow[j] + 1;
+                    move = INSERT;
+                }
+                if (currentRow[j - 1] + 1 < best) {
+                    best = currentRow[j - 1] + 1;
+                    move = DELETE;
+                }
+                currentRow[j] = best;
+                moves[i * width + j - i + BAND] = move;
+            }
+            currentRow[high + 1] = INFINITY;
+            int[] swap = previousRow;
+            previousRow = currentRow;
+            currentRow = swap;
+        }
+
+        // The typed text may end anywhere in the reference
+        int end = Math.max(0, m - BAND);
+        for (int j = end + 1; j <= Math.min(n, m + BAND); j++) {
+            if (previousRow[j] < previousRow[end]) {
+                end = j;
+            }
+        }
+
+        int matched = 0;
+        int substituted = 0;
+        int inserted = 0;
+        int deleted = 0;
+        int correctLetters = 0;
+        int letterErrors = 0;
+        int i = m;
+        int j = end;
+        while (i > 0 || j > 0) {
+            switch (moves[i * width + j - i + BAND]) {
+                case MATCH:
+                    matched++;
+                    correctLetters += typedWords.length(i - 1);
+                    i--;
+                    j--;
+                    break;
+                case SUBSTITUTE:
+                    substituted++;
+                    int distance = distance(typed, typedWords.starts[i - 1], typedWords.ends[i - 1],
+                            reference, referenceWords.starts[j - 1], referenceWords.ends[j - 1]);
+                    letterErrors += distance;
+                    correctLetters += Math.max(0, typedWords.length(i - 1) - distance);
+                    i--;
+                    j--;
+                    break;
+                case INSERT:
+                    inserted++;
+                    letterErrors += typedWords.length(i - 1);
+                    i--;
+                    break;
+                default:
+                    deleted++;
+                    j--;
+                    break;
+            }
+        }
+
+        // The typed words beyond the BAND are extra words
+        for (int k = m; k < typedCount; k++) {
+            inserted++;
+            letterErrors += typedWords.length(k);
+        }
+
+        return new AlignmentScore(typedCount, matched, substituted, inserted, deleted,
+                typedWords.letters, correctLetters, letterErrors);
+    }
+
+    /**
+     * Computes the edit distance of a typed word from a reference word.
+     * Myers' bit-parallel algorithm is used for reference words of up to 64 letters.
+     *
+     * @param text         the typed text
+     * @param textStart    the start of the typed word
+     * @param textEnd      the end of the typed word
+     * @param pattern      the reference text
+     * @param patternStart the start of the reference word
+     * @param patternEnd   the end of the reference word
+     * @return the number of letter insertions, deletions and substitutions
+     */
+    int distance(CharSequence text, int textStart, int textEnd, CharSequence pattern, int patternStart, int patternEnd) {
+        int patternLength = patternEnd - patternStart;
+        if (patternLength == 0) {
+            return textEnd - textStart;
+        }
+        if (patternLength > Long.SIZE) {
+            return classicDistance(text, textStart, textEnd, pattern, patternStart, patternEnd);
+        }
+
+        peqGeneration++;
+        for (int k = 0; k < patternLength; k++) {
+            int slot = peqSlot(pattern.charAt(patternStart + k));
+            if (peqStamps[slot] != peqGeneration) {
+                peqStamps[slot] = peqGeneration;
+                peqChars[slot] = pattern.charAt(patternStart + k);
+                peqMasks[slot] = 0;
+            }
+            peqMasks[slot] |= 1L << k;
+        }
+
+        long vp = -1L;
+        long vn = 0;
+        long high = 1L << (patternLength - 1);
+        int score = patternLength;
+        for (int t = textStart; t < textEnd; t++) {
+            int slot = peqSlot(text.charAt(t));
+            long eq = peqStamps[slot] == peqGeneration ? peqMasks[slot] : 0;
+            long xv = eq | vn;
+            long xh = (((eq & vp) + vp) ^ vp) | eq;
+            long ph = vn | ~(xh | vp);
+            long mh = vp & xh;
+            if ((ph & high) != 0) {
+                score++;
+            } else if ((mh & high) != 0) {
+                score--;
+            }
+            // The first row of the matrix grows by one with every letter of the text
+            ph = (ph << 1) | 1;
+            mh <<= 1;
+            vp = mh | ~(xv | ph);
+            vn = ph & xv;
+        }
+        return score;
+    }
+
+    /**
+     * Finds the slot of a letter in the match mask table, which is either its own or a free one.
+     *
+     * @param c the letter
+     * @return the index of the slot
+     */
+    private int peqSlot(char c) {
+        int slot = (c * 0x9E37) & (PEQ_SLOTS - 1);
+        while (peqStamps[slot] == peqGeneration && peqChars[slot] != c) {
+            slot = (slot + 1) & (PEQ_SLOTS - 1);
+        }
+        return slot;
+    }
+
+    /**
+     * Computes the edit distance of two words by the dynamic programming algorithm, used for very long words.
+     *
+     * @param text         the typed text
+     * @param textStart    the start of the typed word
+     * @param textEnd      the end of the typed word
+     * @param pattern      the reference text
+     * @param patternStart the start of the reference word
+     * @param patternEnd   the end of the reference word
+     * @return the number of letter insertions, deletions and substitutions
+     */
+    private static int classicDistance(CharSequence text, int textStart, int textEnd,
+                                       CharSequence pattern, int patternStart, int patternEnd) {
+        int patternLength = patternEnd - patternStart;
+        int[] previous = new int[patternLength + 1];
+        int[] current = new int[patternLength + 1];
+        for (int k = 0; k <= patternLength; k++) {
+            previous[k] = k;
+        }
+        for (int t = textStart; t < textEnd; t++) {
+            current[0] = t - textStart + 1;
+            for (int k = 1; k <= patternLength; k++) {
+                int cost = text.charAt(t) == pattern.charAt(patternStart + k - 1) ? 0 : 1;
+                current[k] = Math.min(previous[k - 1] + cost, Math.min(previous[k], current[k - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[patternLength];
+    }
+
+    /**
+     * Positions of the words of a text, separated by whitespace, with a hash of each word for fast comparison.
+     */
+    private static final class Words {
+        private int count;
+        private int letters;
+        private int[] starts = new int[64];
+        private int[] ends = new int[64];
+        private int[] hashes = new int[64];
+
+        /**
+         * Finds the words of a text, replacing the previous ones.
+         *
+         * @param text the text to split
+         */
+        private void split(CharSequence text) {
+            count = 0;
+            letters = 0;
+            int length = text.length();
+            int pos = 0;
+            while (pos < length) {
+                while (pos < length && Character.isWhitespace(text.charAt(pos))) {
+                    pos++;
+                }
+                if (pos == length) {
+                    break;
+                }
+                int start = pos;
+                int hash = 0;
+                while (pos < length && !Character.isWhitespace(text.charAt(pos))) {
+                    hash = 31 * hash + text.charAt(pos++);
+                }
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    ends = Arrays.copyOf(ends, count * 2);
+                    hashes = Arrays.copyOf(hashes, count * 2);
+                }
+                starts[count] = start;
+                ends[count] = pos;
+                hashes[count] = hash;
+                letters += pos - start;
+                count++;
+            }
+        }
+
+        /**
+         * Returns the length of a word.
+         *
+         * @param index the index of the word
+         * @return the number of letters of the word
+         */
+        private int length(int index) {
+            return ends[index] - starts[index];
+        }
+
+        /**
+         * Checks whether a word of this text equals a word of another text.
+         *
+         * @param index      the index of the word in this text
+         * @param text       this text
+         * @param other      the words of the other text
+         * @param otherIndex the index of the word in the other text
+         * @param otherText  the other text
+         * @return true if both words consist of the same letters
+         */
+        private boolean sameWord(int index, CharSequence text, Words other, int otherIndex, CharSequence otherText) {
+            if (hashes[index] != other.hashes[otherIndex] || length(index) != other.length(otherIndex)) {
+                return false;
+            }
+            for (int k = 0; k < length(index); k++) {
+                if (text.charAt(starts[index] + k) != otherText.charAt(other.starts[otherIndex] + k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package typing_speed_test.analytics;
+
+/**
+ * Measures the time between consecutive correctly typed characters and records it per bigram.
+ * A deletion or a wrong character interrupts the sequence, so corrections are not counted as latencies,
+ * and characters inserted at once, such as pasted text, are not counted either.
+ */
+public class BigramLatencyRecorder implements KeystrokeListener {
+    private BigramLatencyStats stats = new BigramLatencyStats();
+    private int previousCodePoint = UNKNOWN;
+    private long previousNanos;
+
+    /**
+     * Starts recording a new session with empty statistics.
+     */
+    public void start() {
+        stats = new BigramLatencyStats();
+        previousCodePoint = UNKNOWN;
+    }
+
+    /**
+     * Records the latency from the previous keystroke if both were typed correctly.
+     *
+     * @param nanoTime          the value of System.nanoTime when the change happened
+     * @param offset            the offset of the character in the input
+     * @param codePoint         the inserted or deleted character, or UNKNOWN
+     * @param expectedCodePoint the character displayed at the position of the change, or UNKNOWN
+     * @param action            INSERT or DELETE
+     */
+    @Override
+    public void keystroke(long nanoTime, int offset, int codePoint, int expectedCodePoint, byte action) {
+        if (action != INSERT || codePoint == UNKNOWN || codePoint != expectedCodePoint) {
+            previousCodePoint = UNKNOWN;
+            return;
+        }
+        if (previousCodePoint != UNKNOWN && nanoTime != previousNanos) {
+            stats.record(previousCodePoint, codePoint, (nanoTime - previousNanos) / 1000);
+        }
+        previousCodePoint = codePoint;
+        previousNanos = nanoTime;
+    }
+
+    /**
+     * Returns the statistics of the current session.
+     *
+     * @return the recorded bigram latencies
+     */
+    public BigramLatencyStats getStats() {
+        return stats;
+    }
+}
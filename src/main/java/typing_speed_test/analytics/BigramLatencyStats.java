@@ -0,0 +1,331 @@
+package typing_speed_test.analytics;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Histograms of the time between two consecutive keystrokes, one for every pair of characters (bigram).
+ * <p>
+ * Latencies are counted in microseconds in fixed log-scaled buckets: values below 8 have a bucket each,
+ * every higher power of two is split into 8 buckets, which keeps the relative error below 12.5 %.
+ * The histograms of all bigrams are stored in a single int array and located through an open-addressing
+ * hash table keyed by both code points packed into a long, so recording allocates nothing
+ * unless a new bigram has to be added to a full table.
+ */
+public class BigramLatencyStats {
+    /**
+     * Longest latency recorded, in microseconds; longer gaps are pauses rather than typing.
+     */
+    public static final long MAX_LATENCY_MICROS = 2_000_000;
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    static final int BUCKETS = bucketOf(MAX_LATENCY_MICROS) + 1;
+    private static final long EMPTY = -1L;
+    private static final int MAGIC = 0x54424752; // "TBGR"
+    private static final byte VERSION = 1;
+
+    private long[] keys;
+    private int[] buckets;
+    private long[] totals;
+    private int size;
+
+    /**
+     * Constructs an empty BigramLatencyStats.
+     */
+    public BigramLatencyStats() {
+        allocate(64);
+    }
+
+    /**
+     * Allocates an empty table with the given capacity.
+     *
+     * @param capacity the number of slots, a power of two
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        buckets = new int[capacity * BUCKETS];
+        totals = new long[capacity];
+        size = 0;
+    }
+
+    /**
+     * Packs the code points of a bigram into a key.
+     *
+     * @param first  the first character
+     * @param second the second character
+     * @return the key of the bigram
+     */
+    public static long key(int first, int second) {
+        return ((long) first << 32) | (second & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the first character of a bigram key.
+     *
+     * @param key the key of the bigram
+     * @return the first code point
+     */
+    public static int first(long key) {
+        return (int) (key >>> 32);
+    }
+
+    /**
+     * Returns the second character of a bigram key.
+     *
+     * @param key the key of the bigram
+     * @return the second code point
+     */
+    public static int second(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Returns the bucket of a latency.
+     *
+     * @param micros the latency in microseconds
+     * @return the index of the bucket
+     */
+    static int bucketOf(long micros) {
+        if (micros < SUB_COUNT) {
+            return (int) Math.max(0, micros);
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        return (magnitude - SUB_BITS + 1) * SUB_COUNT + (int) ((micros >> (magnitude - SUB_BITS)) & (SUB_COUNT - 1));
+    }
+
+    /**
+     * Returns the latency in the middle of a bucket.
+     *
+     * @param bucket the index of the bucket
+     * @return the representative latency in microseconds
+     */
+    static long valueOf(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_COUNT - 1;
+        long lower = (long) (SUB_COUNT + bucket % SUB_COUNT) << shift;
+        return lower + ((1L << shift) >> 1);
+    }
+
+    /**
+     * Records the latency of a single bigram.
+     *
+     * @param first  the first character
+     * @param second the second character
+     * @param micros the time between both keystrokes in microseconds
+     */
+    public void record(int first, int second, long micros) {
+        if (micros < 0 || micros > MAX_LATENCY_MICROS) {
+            return;
+        }
+        int slot = slotFor(key(first, second));
+        buckets[slot * BUCKETS + bucketOf(micros)]++;
+        totals[slot]++;
+    }
+
+    /**
+     * Adds all histograms of another instance to this one.
+     *
+     * @param other the statistics to merge
+     */
+    public void merge(BigramLatencyStats other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] == EMPTY) {
+                continue;
+            }
+            int slot = slotFor(other.keys[i]);
+            for (int b = 0; b < BUCKETS; b++) {
+                buckets[slot * BUCKETS + b] += other.buckets[i * BUCKETS + b];
+            }
+            totals[slot] += other.totals[i];
+        }
+    }
+
+    /**
+     * Returns the number of bigrams with recorded latencies.
+     *
+     * @return the number of bigrams
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the keys of all bigrams with recorded latencies.
+     *
+     * @return the bigram keys, in no particular order
+     */
+    public long[] bigrams() {
+        long[] result = new long[size];
+        int n = 0;
+        for (long key : keys) {
+            if (key != EMPTY) {
+                result[n++] = key;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of latencies recorded for a bigram.
+     *
+     * @param key the key of the bigram
+     * @return the number of samples
+     */
+    public long count(long key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : totals[slot];
+    }
+
+    /**
+     * Returns a percentile of the latencies of a bigram.
+     *
+     * @param key        the key of the bigram
+     * @param percentile the percentile between 0 and 100
+     * @return the latency in microseconds, or 0 if the bigram has no samples
+     */
+    public long percentile(long key, double percentile) {
+        int slot = find(key);
+        if (slot < 0 || totals[slot] == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totals[slot]));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets[slot * BUCKETS + b];
+            if (seen >= rank) {
+                return valueOf(b);
+            }
+        }
+        return valueOf(BUCKETS - 1);
+    }
+
+    /**
+     * Finds the slot of a key.
+     *
+     * @param key the key of the bigram
+     * @return the slot, or -1 if the key is not present
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the slot of a key, inserting the key if it is not present.
+     *
+     * @param key the key of the bigram
+     * @return the slot of the key
+     */
+    private int slotFor(long key) {
+        if (2 * (size + 1) > keys.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        size++;
+        return slot;
+    }
+
+    /**
+     * Doubles the capacity of the table and moves all histograms to their new slots.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldBuckets = buckets;
+        long[] oldTotals = totals;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slotFor(oldKeys[i]);
+                System.arraycopy(oldBuckets, i * BUCKETS, buckets, slot * BUCKETS, BUCKETS);
+                totals[slot] = oldTotals[i];
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of a key.
+     *
+     * @param key the key of the bigram
+     * @return the hash of the key
+     */
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Writes the histograms, storing only their non-empty buckets.
+     *
+     * @param out the stream to write to
+     * @throws IOException if there is an error writing
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == EMPTY) {
+                continue;
+            }
+            int nonEmpty = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                if (buckets[i * BUCKETS + b] != 0) {
+                    nonEmpty++;
+                }
+            }
+            out.writeLong(keys[i]);
+            out.writeShort(nonEmpty);
+            for (int b = 0; b < BUCKETS; b++) {
+                if (buckets[i * BUCKETS + b] != 0) {
+                    out.writeShort(b);
+                    out.writeInt(buckets[i * BUCKETS + b]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads histograms written by write and adds them to this instance.
+     *
+     * @param in the stream to read from
+     * @throws IOException if there is an error reading or the data is not in the expected format
+     */
+    public void read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("Unsupported bigram statistics format");
+        }
+        int entries = in.readInt();
+        for (int e = 0; e < entries; e++) {
+            int slot = slotFor(in.readLong());
+            int nonEmpty = in.readShort();
+            for (int k = 0; k < nonEmpty; k++) {
+                int b = in.readShort();
+                int count = in.readInt();
+                if (b < 0 || b >= BUCKETS) {
+                    throw new IOException("Invalid bucket in bigram statistics: " + b);
+                }
+                buckets[slot * BUCKETS + b] += count;
+                totals[slot] += count;
+            }
+        }
+    }
+}
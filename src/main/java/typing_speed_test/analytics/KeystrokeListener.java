@@ -0,0 +1,26 @@
+package typing_speed_test.analytics;
+
+/**
+ * Receives every single character inserted into or deleted from the user's input during a test.
+ */
+public interface KeystrokeListener {
+    byte INSERT = 0;
+    byte DELETE = 1;
+
+    /**
+     * Code point used when a character is not known, for example when nothing is expected at its position.
+     */
+    int UNKNOWN = -1;
+
+    /**
+     * Called for every inserted or deleted character.
+     *
+     * @param nanoTime          the value of System.nanoTime when the change happened
+     * @param offset            the offset of the character in the input once the preceding characters
+     *                          of the same change are inserted or deleted
+     * @param codePoint         the inserted or deleted character, or UNKNOWN
+     * @param expectedCodePoint the character displayed at the position of the change, or UNKNOWN
+     * @param action            INSERT or DELETE
+     */
+    void keystroke(long nanoTime, int offset, int codePoint, int expectedCodePoint, byte action);
+}
@@ -0,0 +1,214 @@
+package typing_speed_test.analytics;
+
+import typing_speed_test.data.TextLoader;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Keystrokes of a test read back from a session file written by KeystrokeRecorder.
+ * The keystrokes are kept in primitive arrays in the order they happened.
+ */
+public class KeystrokeLog {
+    private final long startMillis;
+    private final int duration;
+    private final String language;
+    private final TextLoader.Mode mode;
+    private final long seed;
+    private final long dropped;
+    private final long[] timestamps;
+    private final int[] offsets;
+    private final int[] codePoints;
+    private final int[] expectedCodePoints;
+    private final byte[] actions;
+
+    /**
+     * Constructs a KeystrokeLog from the decoded contents of a session file.
+     */
+    private KeystrokeLog(long startMillis, int duration, String language, TextLoader.Mode mode, long seed, long dropped,
+                         long[] timestamps, int[] offsets, int[] codePoints, int[] expectedCodePoints, byte[] actions) {
+        this.startMillis = startMillis;
+        this.duration = duration;
+        this.language = language;
+        this.mode = mode;
+        this.seed = seed;
+        this.dropped = dropped;
+        this.timestamps = timestamps;
+        this.offsets = offsets;
+        this.codePoints = codePoints;
+        this.expectedCodePoints = expectedCodePoints;
+        this.actions = actions;
+    }
+
+    /**
+     * Reads a session file.
+     *
+     * @param file the session file
+     * @return the keystrokes stored in the file
+     * @throws IOException if the file cannot be read or is not a session file of the current version
+     */
+    public static KeystrokeLog read(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (buffer.getInt() != KeystrokeRecorder.MAGIC) {
+                throw new IOException("Not a session file: " + file);
+            }
+            byte version = buffer.get();
+            if (version != KeystrokeRecorder.VERSION) {
+                throw new IOException("Unsupported session file version " + version + ": " + file);
+            }
+            long startMillis = buffer.getLong();
+            int duration = buffer.getInt();
+            int languageLength = buffer.getShort();
+            if (languageLength < 0 || languageLength > buffer.remaining()) {
+                throw new IOException("Truncated session file: " + file);
+            }
+            byte[] languageBytes = new byte[languageLength];
+            buffer.get(languageBytes);
+            int modeIndex = buffer.get();
+            if (modeIndex < 0 || modeIndex >= TextLoader.Mode.values().length) {
+                throw new IOException("Unknown text mode " + modeIndex + ": " + file);
+            }
+            long seed = buffer.getLong();
+            long dropped = buffer.getLong();
+            int count = buffer.getInt();
+            if (count < 0 || (long) count * KeystrokeRecorder.EVENT_SIZE > buffer.remaining()) {
+                throw new IOException("Truncated session file: " + file);
+            }
+
+            long[] timestamps = new long[count];
+            int[] offsets = new int[count];
+            int[] codePoints = new int[count];
+            int[] expectedCodePoints = new int[count];
+            byte[] actions = new byte[count];
+            for (int i = 0; i < count; i++) {
+                timestamps[i] = buffer.getLong();
+                offsets[i] = buffer.getInt();
+                codePoints[i] = buffer.getInt();
+                expectedCodePoints[i] = buffer.getInt();
+                actions[i] = buffer.get();
+            }
+            return new KeystrokeLog(startMillis, duration, new String(languageBytes, StandardCharsets.UTF_8),
+                    TextLoader.Mode.values()[modeIndex], seed, dropped, timestamps, offsets, codePoints, expectedCodePoints, actions);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated session file: " + file, e);
+        }
+    }
+
+    /**
+     * Returns the start of the session.
+     *
+     * @return the start in milliseconds since the epoch
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Returns the duration of the test.
+     *
+     * @return the duration in seconds
+     */
+    public int getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the language of the test.
+     *
+     * @return the language of the displayed text
+     */
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * Returns the way words of the displayed text were picked.
+     *
+     * @return the mode of the text loader
+     */
+    public TextLoader.Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the seed of the displayed text.
+     *
+     * @return the seed of the text loader
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the number of keystrokes which were overwritten before the session was written.
+     *
+     * @return the number of dropped keystrokes
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Returns the number of keystrokes in the log.
+     *
+     * @return the number of keystrokes
+     */
+    public int size() {
+        return timestamps.length;
+    }
+
+    /**
+     * Returns the time of a keystroke.
+     *
+     * @param index the index of the keystroke
+     * @return nanoseconds since the start of the session
+     */
+    public long timestamp(int index) {
+        return timestamps[index];
+    }
+
+    /**
+     * Returns the offset in the input at which a keystroke inserted or deleted its character.
+     *
+     * @param index the index of the keystroke
+     * @return the offset of the character in the input
+     */
+    public int offset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Returns the inserted or deleted character of a keystroke.
+     *
+     * @param index the index of the keystroke
+     * @return the code point, or UNKNOWN
+     */
+    public int codePoint(int index) {
+        return codePoints[index];
+    }
+
+    /**
+     * Returns the character displayed at the position of a keystroke.
+     *
+     * @param index the index of the keystroke
+     * @return the code point, or UNKNOWN
+     */
+    public int expectedCodePoint(int index) {
+        return expectedCodePoints[index];
+    }
+
+    /**
+     * Returns the action of a keystroke.
+     *
+     * @param index the index of the keystroke
+     * @return INSERT or DELETE
+     */
+    public byte action(int index) {
+        return actions[index];
+    }
+}
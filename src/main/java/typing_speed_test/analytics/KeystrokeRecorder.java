@@ -0,0 +1,197 @@
+package typing_speed_test.analytics;
+
+import typing_speed_test.data.TextLoader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records every keystroke of a test into a preallocated ring buffer of primitive arrays,
+ * so recording creates no objects, and writes the recorded session into a compact binary file.
+ * If the buffer fills up, the oldest keystrokes are overwritten and counted as dropped.
+ * <p>
+ * A session file starts with the magic number, the format version, the start of the session
+ * in milliseconds since the epoch, the duration of the test in seconds, the language, the mode and
+ * the seed of the displayed text, the number of dropped keystrokes and the number of recorded keystrokes.
+ * Every keystroke then takes 21 bytes: nanoseconds since the start, the offset in the input,
+ * the typed and expected code points and the action.
+ */
+public class KeystrokeRecorder implements KeystrokeListener {
+    public static final int MAGIC = 0x544B534C; // "TKSL"
+    public static final byte VERSION = 3;
+    static final int EVENT_SIZE = 8 + 4 + 4 + 4 + 1;
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    // The start of the session follows the magic number and the version
+    private static final int START_OFFSET = 4 + 1;
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final long[] timestamps;
+    private final int[] offsets;
+    private final int[] codePoints;
+    private final int[] expectedCodePoints;
+    private final byte[] actions;
+    private int next;
+    private int count;
+    private long dropped;
+    private long startNanos;
+    private long startMillis;
+
+    /**
+     * Constructs a KeystrokeRecorder with room for 65536 keystrokes.
+     */
+    public KeystrokeRecorder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a KeystrokeRecorder with room for the given number of keystrokes.
+     *
+     * @param capacity the number of keystrokes kept before the oldest are overwritten
+     */
+    public KeystrokeRecorder(int capacity) {
+        timestamps = new long[capacity];
+        offsets = new int[capacity];
+        codePoints = new int[capacity];
+        expectedCodePoints = new int[capacity];
+        actions = new byte[capacity];
+    }
+
+    /**
+     * Discards all recorded keystrokes and starts a new session.
+     *
+     * @param nanoTime the value of System.nanoTime at the start of the session
+     */
+    public void start(long nanoTime) {
+        next = 0;
+        count = 0;
+        dropped = 0;
+        startNanos = nanoTime;
+        startMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Stores a keystroke in the ring buffer.
+     *
+     * @param nanoTime          the value of System.nanoTime when the change happened
+     * @param offset            the offset of the character in the input
+     * @param codePoint         the inserted or deleted character, or UNKNOWN
+     * @param expectedCodePoint the character displayed at the position of the change, or UNKNOWN
+     * @param action            INSERT or DELETE
+     */
+    @Override
+    public void keystroke(long nanoTime, int offset, int codePoint, int expectedCodePoint, byte action) {
+        timestamps[next] = nanoTime;
+        offsets[next] = offset;
+        codePoints[next] = codePoint;
+        expectedCodePoints[next] = expectedCodePoint;
+        actions[next] = action;
+        next = (next + 1) % timestamps.length;
+        if (count < timestamps.length) {
+            count++;
+        } else {
+            dropped++;
+        }
+    }
+
+    /**
+     * Returns the number of keystrokes currently held by the buffer.
+     *
+     * @return the number of recorded keystrokes
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Encodes the recorded session in the format of a session file.
+     * The loader of the test is stored by its language, mode and seed, so the displayed text can be generated again.
+     * The encoded session does not change when a new session is started, so it can be written on another thread.
+     *
+     * @param textLoader the loader which provided the text of the test
+     * @param duration   the duration of the test in seconds
+     * @return the encoded session, ready to be written
+     */
+    public ByteBuffer encode(TextLoader textLoader, int duration) {
+        byte[] languageBytes = textLoader.getLanguage().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 1 + 8 + 4 + 2 + languageBytes.length + 1 + 8 + 8 + 4 + count * EVENT_SIZE);
+        buffer.putInt(MAGIC).put(VERSION).putLong(startMillis).putInt(duration);
+        buffer.putShort((short) languageBytes.length).put(languageBytes);
+        buffer.put((byte) textLoader.getMode().ordinal()).putLong(textLoader.getSeed());
+        buffer.putLong(dropped).putInt(count);
+
+        // The oldest keystroke is at next once the buffer has wrapped around
+        int first = count < timestamps.length ? 0 : next;
+        for (int k = 0; k < count; k++) {
+            int i = (first + k) % timestamps.length;
+            buffer.putLong(timestamps[i] - startNanos);
+            buffer.putInt(offsets[i]);
+            buffer.putInt(codePoints[i]);
+            buffer.putInt(expectedCodePoints[i]);
+            buffer.put(actions[i]);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Writes an encoded session into a new file in the given directory and deletes the oldest session files
+     * beyond the given number. The file is named after the start of the session, the process and a counter,
+     * so instances of the application sharing the directory never pick the same name.
+     *
+     * @param directory the directory of the session files, created if it does not exist
+     * @param session   the session encoded by encode
+     * @param maxFiles  the number of session files kept in the directory
+     * @return the path of the written file
+     * @throws IOException if there is an error writing the file
+     */
+    public static Path write(Path directory, ByteBuffer session, int maxFiles) throws IOException {
+        Files.createDirectories(directory);
+        long startMillis = session.getLong(session.position() + START_OFFSET);
+        Path file = directory.resolve(String.format("session-%013d-%d-%d.bin",
+                startMillis, ProcessHandle.current().pid(), SEQUENCE.incrementAndGet()));
+
+        ByteBuffer buffer = session.duplicate();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        prune(directory, maxFiles);
+        return file;
+    }
+
+    /**
+     * Deletes the oldest session files of a directory beyond the given number.
+     *
+     * @param directory the directory of the session files
+     * @param maxFiles  the number of session files kept
+     * @throws IOException if there is an error listing the directory or deleting a file
+     */
+    private static void prune(Path directory, int maxFiles) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "session-*.bin")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        if (files.size() <= maxFiles) {
+            return;
+        }
+        // The names start with the zero-padded start of the session, so they sort oldest first
+        files.sort(Comparator.comparing(file -> file.getFileName().toString()));
+        for (Path file : files.subList(0, files.size() - maxFiles)) {
+            // Another instance may have deleted it already
+            Files.deleteIfExists(file);
+        }
+    }
+}
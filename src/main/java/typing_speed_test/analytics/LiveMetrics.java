@@ -0,0 +1,149 @@
+package typing_speed_test.analytics;
+
+/**
+ * Accumulates words per minute and accuracy while a test is running.
+ * It is updated with every change of a single letter's status in constant time,
+ * so the current values can be read at any moment without scanning the typed text.
+ */
+public class LiveMetrics {
+    private static final double NANOS_PER_MINUTE = 60e9;
+
+    private long startNanos;
+    private int correctLetters;
+    private int incorrectLetters;
+    private int completedWords;
+    private boolean insideWord;
+
+    /**
+     * Resets all counters and starts measuring the elapsed time.
+     *
+     * @param nanoTime the current value of System.nanoTime
+     */
+    public void start(long nanoTime) {
+        startNanos = nanoTime;
+        correctLetters = 0;
+        incorrectLetters = 0;
+        completedWords = 0;
+        insideWord = false;
+    }
+
+    /**
+     * Counts a newly typed letter.
+     *
+     * @param correct      whether the letter matches the displayed one
+     * @param wordBoundary whether the displayed letter is the space ending a word
+     */
+    public void addLetter(boolean correct, boolean wordBoundary) {
+        if (correct) {
+            correctLetters++;
+        } else {
+            incorrectLetters++;
+        }
+        if (wordBoundary) {
+            completedWords++;
+        }
+    }
+
+    /**
+     * Stops counting a previously typed letter.
+     *
+     * @param correct      whether the letter matched the displayed one
+     * @param wordBoundary whether the displayed letter is the space ending a word
+     */
+    public void removeLetter(boolean correct, boolean wordBoundary) {
+        if (correct) {
+            correctLetters--;
+        } else {
+            incorrectLetters--;
+        }
+        if (wordBoundary) {
+            completedWords--;
+        }
+    }
+
+    /**
+     * Changes the number of completed words by words ending other than by a typed space, such as at the end of a chunk.
+     *
+     * @param delta the number of words completed, or negative when words are reopened
+     */
+    public void completeWords(int delta) {
+        completedWords += delta;
+    }
+
+    /**
+     * Tells whether the user is in the middle of typing a word, which then counts as typed.
+     *
+     * @param insideWord whether a word has been started but not completed
+     */
+    public void setInsideWord(boolean insideWord) {
+        this.insideWord = insideWord;
+    }
+
+    /**
+     * Returns the number of words typed, including a word which has been started but not completed.
+     *
+     * @return the number of typed words
+     */
+    public int getTypedWords() {
+        return completedWords + (insideWord ? 1 : 0);
+    }
+
+    /**
+     * Returns the number of typed letters which match the displayed ones.
+     *
+     * @return the number of correct letters
+     */
+    public int getCorrectLetters() {
+        return correctLetters;
+    }
+
+    /**
+     * Returns the number of typed letters which do not match the displayed ones.
+     *
+     * @return the number of incorrect letters
+     */
+    public int getIncorrectLetters() {
+        return incorrectLetters;
+    }
+
+    /**
+     * Returns the accuracy over the letters typed so far.
+     *
+     * @return the percentage of correct letters
+     */
+    public double getAccuracy() {
+        int typed = correctLetters + incorrectLetters;
+        return typed > 0 ? (double) correctLetters / typed * 100 : 0.0;
+    }
+
+    /**
+     * Returns the time elapsed since the start.
+     *
+     * @param nanoTime the current value of System.nanoTime
+     * @return the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos(long nanoTime) {
+        return nanoTime - startNanos;
+    }
+
+    /**
+     * Returns the words per minute achieved so far.
+     *
+     * @param nanoTime the current value of System.nanoTime
+     * @return the words per minute over the elapsed time
+     */
+    public int getWpm(long nanoTime) {
+        long elapsed = getElapsedNanos(nanoTime);
+        return elapsed > 0 ? (int) (getTypedWords() / (elapsed / NANOS_PER_MINUTE)) : 0;
+    }
+
+    /**
+     * Returns the words per minute over a whole test.
+     *
+     * @param durationSeconds the duration of the test in seconds
+     * @return the words per minute over the duration
+     */
+    public int getWpm(int durationSeconds) {
+        return (int) (getTypedWords() / (durationSeconds / 60.0));
+    }
+}
@@ -0,0 +1,100 @@
+package typing_speed_test.analytics;
+
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Reduces long series of values to a number of points a chart can show.
+ * Points are picked by the Largest-Triangle-Three-Buckets algorithm, which keeps the first and last point
+ * and from every bucket of the points in between the one forming the largest triangle with its neighbours,
+ * so peaks and dips of the series survive the reduction. The x value of the value at index i is i + 1.
+ */
+public final class SeriesDownsampler {
+
+    private SeriesDownsampler() {
+    }
+
+    /**
+     * Picks at most the given number of points of a series.
+     * A series which is not longer than the threshold is returned whole.
+     *
+     * @param values    the values of the series by their index
+     * @param count     the number of values
+     * @param threshold the maximum number of returned points, at least 3
+     * @return the x values and the y values of the picked points
+     */
+    public static double[][] downsample(IntToDoubleFunction values, int count, int threshold) {
+        if (count <= threshold || threshold < 3) {
+            double[][] series = new double[2][count];
+            for (int i = 0; i < count; i++) {
+                series[0][i] = i + 1;
+                series[1][i] = values.applyAsDouble(i);
+            }
+            return series;
+        }
+
+        double[][] series = new double[2][threshold];
+        double bucketSize = (double) (count - 2) / (threshold - 2);
+        int picked = 0;
+        series[0][0] = 1;
+        series[1][0] = values.applyAsDouble(0);
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // The third corner of the triangles is the average of the next bucket
+            int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, count);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += i;
+                averageY += values.applyAsDouble(i);
+            }
+            int nextLength = nextEnd - nextStart;
+            averageX /= nextLength;
+            averageY /= nextLength;
+
+            double pickedY = values.applyAsDouble(picked);
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = nextStart;
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int i = start; i < end; i++) {
+                double y = values.applyAsDouble(i);
+                double area = Math.abs((picked - averageX) * (y - pickedY) - (picked - i) * (averageY - pickedY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+
+            picked = maxIndex;
+            series[0][bucket + 1] = picked + 1;
+            series[1][bucket + 1] = values.applyAsDouble(picked);
+        }
+
+        series[0][threshold - 1] = count;
+        series[1][threshold - 1] = values.applyAsDouble(count - 1);
+        return series;
+    }
+
+    /**
+     * Computes the average of every value and the values preceding it within a window, in a single pass.
+     * The first values are averaged over the values available so far.
+     *
+     * @param values the values of the series by their index
+     * @param count  the number of values
+     * @param window the number of values averaged
+     * @return the rolling averages by the index of the last averaged value
+     */
+    public static double[] rollingAverage(IntToDoubleFunction values, int count, int window) {
+        double[] averages = new double[count];
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values.applyAsDouble(i);
+            if (i >= window) {
+                sum -= values.applyAsDouble(i - window);
+            }
+            averages[i] = sum / Math.min(i + 1, window);
+        }
+        return averages;
+    }
+}
@@ -0,0 +1,94 @@
+package typing_speed_test.data;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Alias table for sampling words of a corpus in proportion to their weights.
+ * The table is built once in linear time by Vose's method, after which every draw
+ * takes constant time and allocates nothing.
+ */
+final class AliasTable {
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+     * Constructs an AliasTable from its columns.
+     *
+     * @param probability the probability of keeping each column's own index
+     * @param alias       the index used instead of each column's own index
+     */
+    private AliasTable(double[] probability, int[] alias) {
+        this.probability = probability;
+        this.alias = alias;
+    }
+
+    /**
+     * Builds the alias table for the weights of a corpus.
+     * If no word has a positive weight, all words are equally likely.
+     *
+     * @param corpus the corpus whose words are sampled
+     * @return the alias table
+     */
+    static AliasTable build(Corpus corpus) {
+        int n = corpus.size();
+        double[] probability = new double[n];
+        int[] alias = new int[n];
+
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            probability[i] = Math.max(0, corpus.weight(i));
+            total += probability[i];
+        }
+        if (total <= 0) {
+            Arrays.fill(probability, 1);
+            total = n;
+        }
+
+        // Split the scaled weights into columns below and above the average
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            probability[i] = probability[i] * n / total;
+            if (probability[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        // Fill every small column with the excess of a large one
+        while (smallCount > 0 && largeCount > 0) {
+            int s = small[--smallCount];
+            int l = large[--largeCount];
+            alias[s] = l;
+            probability[l] += probability[s] - 1;
+            if (probability[l] < 1) {
+                small[smallCount++] = l;
+            } else {
+                large[largeCount++] = l;
+            }
+        }
+        // Whatever remains is full up to rounding errors
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1;
+        }
+        return new AliasTable(probability, alias);
+    }
+
+    /**
+     * Draws the index of a word.
+     *
+     * @param random the source of randomness
+     * @return the index of the drawn word
+     */
+    int sample(SplittableRandom random) {
+        int column = random.nextInt(probability.length);
+        return random.nextDouble() < probability[column] ? column : alias[column];
+    }
+}
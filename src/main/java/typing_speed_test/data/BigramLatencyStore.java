@@ -0,0 +1,107 @@
+package typing_speed_test.data;
+
+import typing_speed_test.analytics.BigramLatencyStats;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stores the bigram latency histograms of every language in a file next to the results file.
+ * The histograms of a finished test are merged into the stored ones of its language.
+ */
+public class BigramLatencyStore {
+    private static final String PREFIX = "typing_bigrams_";
+    private static final String SUFFIX = ".bin";
+
+    private final Path directory;
+
+    /**
+     * Constructs a BigramLatencyStore keeping its files in the given directory.
+     *
+     * @param directory the directory of the results file
+     */
+    public BigramLatencyStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Merges the statistics of a test into the stored statistics of its language.
+     *
+     * @param language the language of the test
+     * @param session  the bigram latencies recorded during the test
+     */
+    public void merge(String language, BigramLatencyStats session) {
+        if (session.size() == 0) {
+            return;
+        }
+        Path file = directory.resolve(PREFIX + language.toLowerCase() + SUFFIX);
+        Path temporary = directory.resolve(PREFIX + language.toLowerCase() + SUFFIX + ".tmp");
+        try {
+            BigramLatencyStats stats = read(file);
+            stats.merge(session);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                stats.write(out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the stored statistics of all languages.
+     *
+     * @return the statistics keyed by the lower case language name
+     */
+    public Map<String, BigramLatencyStats> readAll() {
+        Map<String, BigramLatencyStats> result = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                result.put(name.substring(PREFIX.length(), name.length() - SUFFIX.length()), read(file));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
+    /**
+     * Erases the stored statistics of all languages.
+     */
+    public void erase() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the statistics stored in a file.
+     *
+     * @param file the file to read
+     * @return the statistics, empty if the file does not exist
+     * @throws IOException if there is an error reading the file
+     */
+    private static BigramLatencyStats read(Path file) throws IOException {
+        BigramLatencyStats stats = new BigramLatencyStats();
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                stats.read(in);
+            }
+        }
+        return stats;
+    }
+}
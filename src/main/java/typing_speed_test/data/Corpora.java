@@ -0,0 +1,101 @@
+package typing_speed_test.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache of the corpora of all languages.
+ * A language is loaded only once and shared by all tests. A dictionary file placed in the
+ * dictionaries directory takes precedence over the bundled word list and is memory-mapped
+ * instead of being loaded onto the heap.
+ */
+public final class Corpora {
+    /**
+     * System property with the directory of the dictionaries, by default typing_dictionaries in the user's home.
+     */
+    public static final String DICTIONARIES_PROPERTY = "typing.dictionaries";
+
+    private static final Map<String, Corpus> CACHE = new ConcurrentHashMap<>();
+    private static final Map<String, AliasTable> ALIAS_TABLES = new ConcurrentHashMap<>();
+
+    private Corpora() {
+    }
+
+    /**
+     * Returns the corpus of the given language, loading it on first use.
+     *
+     * @param language the language of the words ("English", "Czech", "Russian", "Spanish")
+     * @return the shared corpus of the language
+     * @throws IOException if there is an error reading the file or if the language is not supported
+     */
+    public static Corpus forLanguage(String language) throws IOException {
+        String key = language.toLowerCase();
+        Corpus corpus = CACHE.get(key);
+        if (corpus == null) {
+            corpus = load(key);
+            Corpus existing = CACHE.putIfAbsent(key, corpus);
+            if (existing != null) {
+                corpus = existing;
+            }
+        }
+        return corpus;
+    }
+
+    /**
+     * Returns the alias table for sampling the words of the given language by weight, building it on first use.
+     *
+     * @param language the language of the words
+     * @return the shared alias table of the language
+     * @throws IOException if there is an error reading the file or if the language is not supported
+     */
+    static AliasTable aliasTable(String language) throws IOException {
+        String key = language.toLowerCase();
+        AliasTable table = ALIAS_TABLES.get(key);
+        if (table == null) {
+            table = AliasTable.build(forLanguage(language));
+            AliasTable existing = ALIAS_TABLES.putIfAbsent(key, table);
+            if (existing != null) {
+                table = existing;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Loads the corpus of a language from its dictionary, or from the bundled resource if there is none.
+     *
+     * @param language the lower case name of the language
+     * @return the loaded corpus
+     * @throws IOException if there is an error reading the file or if the language is not supported
+     */
+    private static Corpus load(String language) throws IOException {
+        Path dictionary = dictionariesDirectory().resolve(language + ".txt");
+        if (Files.isRegularFile(dictionary)) {
+            return MappedCorpus.open(dictionary);
+        }
+
+        InputStream is = Corpora.class.getResourceAsStream("/texts/" + language + ".txt");
+        if (is == null) {
+            throw new IOException("Resource not found for language: " + language);
+        }
+        return HeapCorpus.load(is);
+    }
+
+    /**
+     * Returns the directory searched for dictionaries.
+     *
+     * @return the dictionaries directory
+     */
+    private static Path dictionariesDirectory() {
+        String directory = System.getProperty(DICTIONARIES_PROPERTY);
+        if (directory != null) {
+            return Paths.get(directory);
+        }
+        return Paths.get(System.getProperty("user.home"), "typing_dictionaries");
+    }
+}
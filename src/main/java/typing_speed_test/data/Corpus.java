@@ -0,0 +1,45 @@
+package typing_speed_test.data;
+
+/**
+ * Immutable table of the words of one language which can be accessed by index.
+ * Every word may have a weight, for example its frequency, given after a tab on its line.
+ */
+public interface Corpus {
+
+    /**
+     * Returns the number of words in the corpus.
+     *
+     * @return the number of words
+     */
+    int size();
+
+    /**
+     * Appends a single word to a string builder without creating an intermediate string.
+     *
+     * @param index the index of the word
+     * @param sb    the builder to append the word to
+     */
+    void appendWord(int index, StringBuilder sb);
+
+    /**
+     * Returns a single word.
+     *
+     * @param index the index of the word
+     * @return the word
+     */
+    default String word(int index) {
+        StringBuilder sb = new StringBuilder();
+        appendWord(index, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Returns the weight of a single word.
+     *
+     * @param index the index of the word
+     * @return the weight of the word, 1 if the corpus has no weights
+     */
+    default double weight(int index) {
+        return 1;
+    }
+}
@@ -0,0 +1,13 @@
+package typing_speed_test.data;
+
+/**
+ * When results written to the results file are forced to the storage device.
+ */
+public enum DurabilityPolicy {
+    /** Every written batch of results is forced before the next one is written. */
+    EVERY_RECORD,
+    /** Written results are forced at most once per interval. */
+    INTERVAL,
+    /** Written results are forced only when the application exits. */
+    ON_SHUTDOWN
+}
@@ -0,0 +1,112 @@
+package typing_speed_test.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Corpus held on the heap.
+ * All words are stored in a single character array and located by an array of offsets.
+ */
+final class HeapCorpus implements Corpus {
+    private final char[] chars;
+    private final int[] offsets;
+    private final double[] weights;
+
+    /**
+     * Constructs a HeapCorpus from the packed words.
+     *
+     * @param chars   the characters of all words, one after another
+     * @param offsets the start of every word in chars followed by the end of the last word
+     * @param weights the weight of every word, or null if the words have no weights
+     */
+    private HeapCorpus(char[] chars, int[] offsets, double[] weights) {
+        this.chars = chars;
+        this.offsets = offsets;
+        this.weights = weights;
+    }
+
+    /**
+     * Reads words from a UTF-8 stream, one word per line, optionally followed by a tab and the word's weight.
+     * Empty lines are skipped, like in the index of a MappedCorpus.
+     *
+     * @param is the stream to read, closed when done
+     * @return the loaded corpus
+     * @throws IOException if there is an error reading the stream
+     */
+    static HeapCorpus load(InputStream is) throws IOException {
+        StringBuilder chars = new StringBuilder();
+        int[] offsets = new int[64];
+        double[] weights = new double[64];
+        boolean weighted = false;
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (count + 1 >= offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                    weights = Arrays.copyOf(weights, offsets.length);
+                }
+                int tab = line.indexOf('\t');
+                weighted |= tab >= 0;
+                weights[count] = tab >= 0 ? WordWeights.parse(line::charAt, tab + 1, line.length()) : 1;
+                offsets[count++] = chars.length();
+                chars.append(line, 0, tab >= 0 ? tab : line.length());
+            }
+        }
+        offsets[count] = chars.length();
+
+        char[] packed = new char[chars.length()];
+        chars.getChars(0, chars.length(), packed, 0);
+        return new HeapCorpus(packed, Arrays.copyOf(offsets, count + 1), weighted ? Arrays.copyOf(weights, count) : null);
+    }
+
+    /**
+     * Returns the number of words in the corpus.
+     *
+     * @return the number of words
+     */
+    @Override
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Appends a single word to a string builder.
+     *
+     * @param index the index of the word
+     * @param sb    the builder to append the word to
+     */
+    @Override
+    public void appendWord(int index, StringBuilder sb) {
+        sb.append(chars, offsets[index], offsets[index + 1] - offsets[index]);
+    }
+
+    /**
+     * Returns a single word.
+     *
+     * @param index the index of the word
+     * @return the word
+     */
+    @Override
+    public String word(int index) {
+        return new String(chars, offsets[index], offsets[index + 1] - offsets[index]);
+    }
+
+    /**
+     * Returns the weight of a single word.
+     *
+     * @param index the index of the word
+     * @return the weight of the word, 1 if the corpus has no weights
+     */
+    @Override
+    public double weight(int index) {
+        return weights == null ? 1 : weights[index];
+    }
+}
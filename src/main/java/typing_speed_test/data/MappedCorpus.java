@@ -0,0 +1,245 @@
+package typing_speed_test.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Corpus memory-mapped from a UTF-8 dictionary file with one word per line,
+ * optionally followed by a tab and the word's weight.
+ * The start of every word is kept in an index file next to the dictionary, built once when
+ * the index is missing or out of date. Opening a dictionary only maps both files, and words
+ * are decoded directly from the mapped bytes, so the heap use does not depend on the dictionary size.
+ */
+final class MappedCorpus implements Corpus {
+    private static final int INDEX_MAGIC = 0x54494458; // "TIDX"
+    private static final int INDEX_VERSION = 1;
+    // Magic, version, size of the dictionary, number of words and a reserved int
+    private static final int HEADER_SIZE = 24;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final MappedByteBuffer text;
+    private final IntBuffer starts;
+    private final int size;
+
+    /**
+     * Constructs a MappedCorpus over mapped files.
+     *
+     * @param text   the mapped dictionary
+     * @param starts the start of every word in the dictionary
+     * @param size   the number of words
+     */
+    private MappedCorpus(MappedByteBuffer text, IntBuffer starts, int size) {
+        this.text = text;
+        this.starts = starts;
+        this.size = size;
+    }
+
+    /**
+     * Opens a dictionary, building its index first if necessary.
+     *
+     * @param dictionary the path of the dictionary
+     * @return the mapped corpus
+     * @throws IOException if there is an error reading the dictionary or writing its index
+     */
+    static MappedCorpus open(Path dictionary) throws IOException {
+        long textSize = Files.size(dictionary);
+        if (textSize > Integer.MAX_VALUE) {
+            throw new IOException("Dictionary is too large to be mapped: " + dictionary);
+        }
+
+        Path index = dictionary.resolveSibling(dictionary.getFileName() + ".idx");
+        if (!isIndexValid(index, dictionary, textSize)) {
+            buildIndex(dictionary, index);
+        }
+
+        MappedByteBuffer indexBuffer = map(index);
+        int count = indexBuffer.getInt(16);
+        IntBuffer starts = indexBuffer.position(HEADER_SIZE).slice().asIntBuffer();
+        return new MappedCorpus(map(dictionary), starts, count);
+    }
+
+    /**
+     * Checks whether an index exists and was built from the current version of the dictionary.
+     *
+     * @param index      the path of the index
+     * @param dictionary the path of the dictionary
+     * @param textSize   the size of the dictionary in bytes
+     * @return true if the index can be used
+     * @throws IOException if there is an error reading the files' attributes
+     */
+    private static boolean isIndexValid(Path index, Path dictionary, long textSize) throws IOException {
+        if (!Files.isRegularFile(index) || Files.size(index) < HEADER_SIZE
+                || Files.getLastModifiedTime(index).compareTo(Files.getLastModifiedTime(dictionary)) < 0) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Read the whole header
+            }
+            header.flip();
+            return header.remaining() == HEADER_SIZE
+                    && header.getInt(0) == INDEX_MAGIC
+                    && header.getInt(4) == INDEX_VERSION
+                    && header.getLong(8) == textSize
+                    && channel.size() >= HEADER_SIZE + 4L * header.getInt(16);
+        }
+    }
+
+    /**
+     * Scans the dictionary once and writes the start of every non-empty line to the index.
+     *
+     * @param dictionary the path of the dictionary
+     * @param index      the path of the index
+     * @throws IOException if there is an error reading the dictionary or writing the index
+     */
+    private static void buildIndex(Path dictionary, Path index) throws IOException {
+        Path temporary = index.resolveSibling(index.getFileName() + ".tmp");
+        try (FileChannel in = FileChannel.open(dictionary, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+            ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+            output.position(HEADER_SIZE);
+
+            int count = 0;
+            int position = 0;
+            boolean atLineStart = true;
+            while (in.read(input) >= 0 || input.position() > 0) {
+                input.flip();
+                while (input.hasRemaining()) {
+                    byte b = input.get();
+                    if (b == '\n' || b == '\r') {
+                        atLineStart = true;
+                    } else if (atLineStart) {
+                        atLineStart = false;
+                        if (!output.hasRemaining()) {
+                            output.flip();
+                            writeFully(out, output);
+                            output.clear();
+                        }
+                        output.putInt(position);
+                        count++;
+                    }
+                    position++;
+                }
+                input.clear();
+            }
+            output.flip();
+            writeFully(out, output);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putLong(position).putInt(count).putInt(0);
+            header.flip();
+            out.position(0);
+            writeFully(out, header);
+        }
+        Files.move(temporary, index, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Writes the whole content of a buffer to a channel.
+     *
+     * @param channel the channel to write to
+     * @param buffer  the buffer to write
+     * @throws IOException if there is an error writing
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Maps a whole file read-only.
+     *
+     * @param path the path of the file
+     * @return the mapped file
+     * @throws IOException if there is an error mapping the file
+     */
+    private static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Returns the number of words in the dictionary.
+     *
+     * @return the number of words
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Decodes a single word from the mapped dictionary and appends it to a string builder.
+     * The word ends at the end of its line or at a tab separating it from further columns.
+     *
+     * @param index the index of the word
+     * @param sb    the builder to append the word to
+     */
+    @Override
+    public void appendWord(int index, StringBuilder sb) {
+        int pos = starts.get(index);
+        int limit = text.limit();
+        while (pos < limit) {
+            int b = text.get(pos) & 0xFF;
+            if (b == '\n' || b == '\r' || b == '\t') {
+                break;
+            }
+            int length = b < 0x80 ? 1 : b < 0xE0 ? 2 : b < 0xF0 ? 3 : 4;
+            if (pos + length > limit) {
+                sb.append('\uFFFD');
+                break;
+            }
+            switch (length) {
+                case 1:
+                    sb.append((char) b);
+                    break;
+                case 2:
+                    sb.append((char) ((b & 0x1F) << 6 | (text.get(pos + 1) & 0x3F)));
+                    break;
+                case 3:
+                    sb.append((char) ((b & 0x0F) << 12 | (text.get(pos + 1) & 0x3F) << 6 | (text.get(pos + 2) & 0x3F)));
+                    break;
+                default:
+                    sb.appendCodePoint((b & 0x07) << 18 | (text.get(pos + 1) & 0x3F) << 12
+                            | (text.get(pos + 2) & 0x3F) << 6 | (text.get(pos + 3) & 0x3F));
+                    break;
+            }
+            pos += length;
+        }
+    }
+
+    /**
+     * Parses the weight following the word on its line, without decoding the line, see WordWeights.
+     *
+     * @param index the index of the word
+     * @return the weight of the word, 1 if it has none
+     */
+    @Override
+    public double weight(int index) {
+        int pos = starts.get(index);
+        int limit = text.limit();
+        while (pos < limit && text.get(pos) != '\t') {
+            if (text.get(pos) == '\n' || text.get(pos) == '\r') {
+                return 1;
+            }
+            pos++;
+        }
+        int end = pos + 1;
+        while (end < limit && text.get(end) != '\n' && text.get(end) != '\r') {
+            end++;
+        }
+        return pos < limit ? WordWeights.parse(text::get, pos + 1, end) : 1;
+    }
+}
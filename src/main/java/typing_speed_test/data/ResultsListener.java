@@ -0,0 +1,33 @@
+package typing_speed_test.data;
+
+import java.util.List;
+
+/**
+ * Receives the changes of the recorded results.
+ * Listeners are called on the thread which changed the results, which need not be the event dispatch thread.
+ */
+public interface ResultsListener {
+
+    /**
+     * Called for every newly recorded or imported result.
+     *
+     * @param data the recorded result
+     */
+    void resultRecorded(StatisticsData data);
+
+    /**
+     * Called once for a batch of imported results, by default for every result of the batch.
+     *
+     * @param results the imported results, in the order they were appended
+     */
+    default void resultsRecorded(List<StatisticsData> results) {
+        for (StatisticsData data : results) {
+            resultRecorded(data);
+        }
+    }
+
+    /**
+     * Called after all recorded results have been erased.
+     */
+    void resultsErased();
+}
@@ -0,0 +1,147 @@
+package typing_speed_test.data;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock on the whole results file, coordinating the instances of the application which share it.
+ * Appending, erasing and compacting hold an exclusive lock, reading holds a shared one,
+ * so readers never see a partly written batch of records.
+ * <p>
+ * File locks are held by the whole virtual machine and an overlapping lock requested by a second
+ * thread fails instead of waiting, so the threads of one process first take turns on a lock of their own.
+ * Closing any channel of the file releases all file locks the process holds on it, so channels
+ * of the results file are closed only while that lock of the threads is held.
+ */
+final class ResultsLock implements AutoCloseable {
+    private static final Map<Path, ReentrantLock> THREAD_LOCKS = new ConcurrentHashMap<>();
+
+    private final ReentrantLock threadLock;
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final FileLock fileLock;
+
+    /**
+     * Constructs a ResultsLock from its acquired parts.
+     *
+     * @param threadLock  the lock of the threads of this process
+     * @param channel     the channel the file is locked through
+     * @param ownsChannel whether the channel is closed together with the lock
+     * @param fileLock    the lock of the file
+     */
+    private ResultsLock(ReentrantLock threadLock, FileChannel channel, boolean ownsChannel, FileLock fileLock) {
+        this.threadLock = threadLock;
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.fileLock = fileLock;
+    }
+
+    /**
+     * Waits until the file can be locked and locks it through an open channel, which stays open after the lock is released.
+     *
+     * @param channel the channel the file is locked through, which must be readable for a shared lock
+     *                and writable for an exclusive one
+     * @param file    the path of the file
+     * @param shared  whether the lock is shared by readers or exclusive
+     * @return the acquired lock, released by closing it
+     * @throws IOException if the file cannot be locked
+     */
+    static ResultsLock acquire(FileChannel channel, Path file, boolean shared) throws IOException {
+        ReentrantLock threadLock = threadLock(file);
+        threadLock.lock();
+        try {
+            return new ResultsLock(threadLock, channel, false, channel.lock(0, Long.MAX_VALUE, shared));
+        } catch (IOException | RuntimeException e) {
+            threadLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the file for reading and waits until it can be locked shared.
+     * The channel is closed by closing the lock, before the lock of the threads is released.
+     *
+     * @param file the path of the file
+     * @return the acquired lock, whose channel is used for reading
+     * @throws IOException if the file cannot be opened or locked
+     */
+    static ResultsLock openShared(Path file) throws IOException {
+        ReentrantLock threadLock = threadLock(file);
+        threadLock.lock();
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            return new ResultsLock(threadLock, channel, true, channel.lock(0, Long.MAX_VALUE, true));
+        } catch (IOException | RuntimeException e) {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } finally {
+                threadLock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Closes a channel of the file while no other thread of this process holds a lock of it.
+     *
+     * @param channel the channel to close
+     * @param file    the path of the file
+     * @throws IOException if the channel cannot be closed
+     */
+    static void close(FileChannel channel, Path file) throws IOException {
+        ReentrantLock threadLock = threadLock(file);
+        threadLock.lock();
+        try {
+            channel.close();
+        } finally {
+            threadLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the lock of the threads of this process for the given file.
+     *
+     * @param file the path of the file
+     * @return the lock shared by all threads locking the file
+     */
+    private static ReentrantLock threadLock(Path file) {
+        return THREAD_LOCKS.computeIfAbsent(file.toAbsolutePath().normalize(), path -> new ReentrantLock());
+    }
+
+    /**
+     * Returns the channel the file is locked through.
+     *
+     * @return the channel of the locked file
+     */
+    FileChannel channel() {
+        return channel;
+    }
+
+    /**
+     * Releases the lock and closes the channel if it was opened with the lock.
+     * A lock whose channel has been closed meanwhile is already released.
+     *
+     * @throws IOException if the file lock cannot be released or the channel cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (ownsChannel) {
+                channel.close();
+            } else if (fileLock.isValid()) {
+                fileLock.release();
+            }
+        } finally {
+            threadLock.unlock();
+        }
+    }
+}
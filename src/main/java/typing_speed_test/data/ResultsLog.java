@@ -0,0 +1,251 @@
+package typing_speed_test.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary format of the results file, an append-only log of fixed-width records.
+ * <p>
+ * The file starts with a 16 byte header: the magic number, the format version, three reserved bytes
+ * and the generation, which is increased whenever records are removed from the file, so readers
+ * which remember how far they have read know they have to read the file again.
+ * <p>
+ * Every result then takes 64 bytes: the end of the test in milliseconds since the epoch,
+ * the words per minute, the accuracies over words and letters, the number of entered words, the duration,
+ * the language as a length byte followed by up to 15 bytes of UTF-8, four reserved bytes and a CRC32
+ * of the preceding 60 bytes. Records with a wrong checksum and an incomplete last record are ignored.
+ */
+final class ResultsLog {
+    static final int MAGIC = 0x54524553; // "TRES"
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 64;
+    private static final int GENERATION_OFFSET = 8;
+    private static final int LANGUAGE_SIZE = 15;
+    private static final int CHECKED_SIZE = RECORD_SIZE - 4;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private ResultsLog() {
+    }
+
+    /**
+     * Writes the header of an empty results file.
+     *
+     * @param channel the channel of the file, positioned at its start
+     * @throws IOException if there is an error writing the header
+     */
+    static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).put(VERSION).put(new byte[3]).putLong(0);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    /**
+     * Reads the generation from the header of a results file.
+     *
+     * @param channel the channel of the file
+     * @return the generation of the file
+     * @throws IOException if there is an error reading the header
+     */
+    static long readGeneration(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, GENERATION_OFFSET + buffer.position()) < 0) {
+                throw new IOException("Truncated results file header");
+            }
+        }
+        return buffer.getLong(0);
+    }
+
+    /**
+     * Writes the generation into the header of a results file.
+     *
+     * @param channel    the channel of the file, not opened for appending
+     * @param generation the new generation
+     * @throws IOException if there is an error writing the header
+     */
+    static void writeGeneration(FileChannel channel, long generation) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8).putLong(0, generation);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, GENERATION_OFFSET + buffer.position());
+        }
+    }
+
+    /**
+     * Checks the header of a results file.
+     *
+     * @param buffer the contents of the file starting with the header
+     * @param file   the results file, used in error messages
+     * @throws IOException if the file is not a results file of the supported version
+     */
+    static void checkHeader(ByteBuffer buffer, Path file) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a results file: " + file);
+        }
+        if (buffer.get(4) != VERSION) {
+            throw new IOException("Unsupported results file version " + buffer.get(4) + ": " + file);
+        }
+    }
+
+    /**
+     * Encodes a result as a record at the position of the buffer, advancing it by the record size.
+     *
+     * @param data   the result to encode
+     * @param buffer the buffer with at least RECORD_SIZE remaining bytes
+     */
+    static void encode(StatisticsData data, ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.putLong(data.getTimestamp());
+        buffer.putDouble(data.getWpm());
+        buffer.putDouble(data.getAccuracyWords());
+        buffer.putDouble(data.getAccuracyLetters());
+        buffer.putInt(data.getEnteredWords());
+        buffer.putInt(data.getDuration());
+
+        byte[] language = data.getLanguage().getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(language.length, LANGUAGE_SIZE);
+        // Never cut a multi-byte character in half
+        while (length < language.length && (language[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        buffer.put((byte) length).put(language, 0, length);
+        buffer.put(new byte[LANGUAGE_SIZE - length]);
+        buffer.putInt(0);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(start).limit(start + CHECKED_SIZE));
+        buffer.putInt((int) crc.getValue());
+    }
+
+    /**
+     * Decodes the record starting at the given position of the buffer.
+     *
+     * @param buffer the buffer containing the record
+     * @param start  the position of the record
+     * @return the decoded result, or null if the checksum of the record does not match
+     */
+    static StatisticsData decode(ByteBuffer buffer, int start) {
+        if (!intact(buffer, start, new CRC32())) {
+            return null;
+        }
+        long timestamp = buffer.getLong(start);
+        double wpm = buffer.getDouble(start + 8);
+        double accuracyWords = buffer.getDouble(start + 16);
+        double accuracyLetters = buffer.getDouble(start + 24);
+        int enteredWords = buffer.getInt(start + 32);
+        int duration = buffer.getInt(start + 36);
+        int length = Math.min(buffer.get(start + 40), LANGUAGE_SIZE);
+        byte[] language = new byte[Math.max(length, 0)];
+        buffer.get(start + 41, language);
+        return StatisticsData.of(timestamp, enteredWords, wpm, accuracyWords, accuracyLetters, duration,
+                new String(language, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Checks the checksum of a record.
+     *
+     * @param buffer the buffer containing the record
+     * @param start  the position of the record
+     * @param crc    a checksum to compute, reset before use
+     * @return true if the checksum of the record matches its contents
+     */
+    private static boolean intact(ByteBuffer buffer, int start, CRC32 crc) {
+        crc.reset();
+        crc.update(buffer.duplicate().position(start).limit(start + CHECKED_SIZE));
+        return (int) crc.getValue() == buffer.getInt(start + CHECKED_SIZE);
+    }
+
+    /**
+     * Reads all intact records of a results file through a memory mapping,
+     * holding a shared lock so no other instance writes to the file meanwhile.
+     * Records with a timestamp before the cutoff of the rollups are skipped, as they are already rolled up.
+     *
+     * @param file   the results file
+     * @param cutoff the time before which results are rolled up
+     * @return the results in the order they were recorded
+     * @throws IOException if the file cannot be read or is not a results file
+     */
+    static List<StatisticsData> read(Path file, long cutoff) throws IOException {
+        try (ResultsLock lock = ResultsLock.openShared(file)) {
+            FileChannel channel = lock.channel();
+            checkHeader(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), HEADER_SIZE)), file);
+            List<StatisticsData> results = new ArrayList<>((int) ((channel.size() - HEADER_SIZE) / RECORD_SIZE));
+            readRecords(channel, HEADER_SIZE, channel.size(), results);
+            results.removeIf(data -> data.getTimestamp() != 0 && data.getTimestamp() < cutoff);
+            return results;
+        }
+    }
+
+    /**
+     * Reads the intact records in a region of a results file through a memory mapping.
+     * Only whole records are read, so an incomplete record at the end of the region is left for a later read.
+     *
+     * @param channel the channel of the file
+     * @param from    the offset of the first record
+     * @param to      the end of the region, usually the size of the file
+     * @param results the list the read results are added to
+     * @return the offset after the last whole record of the region
+     * @throws IOException if there is an error reading the file
+     */
+    static long readRecords(FileChannel channel, long from, long to, List<StatisticsData> results) throws IOException {
+        long length = Math.max(0, (to - from) / RECORD_SIZE * RECORD_SIZE);
+        if (length == 0) {
+            return from;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+        for (int start = 0; start < length; start += RECORD_SIZE) {
+            StatisticsData data = decode(buffer, start);
+            if (data != null) {
+                results.add(data);
+            }
+        }
+        return from + length;
+    }
+
+    /**
+     * Reads the intact records in a region of a results file directly into columns, without an object per record.
+     * Only whole records are read, so an incomplete record at the end of the region is left for a later read.
+     * Records with a timestamp before the cutoff of the rollups are skipped, as they are already rolled up.
+     *
+     * @param channel the channel of the file
+     * @param from    the offset of the first record
+     * @param to      the end of the region, usually the size of the file
+     * @param columns the columns the read results are appended to
+     * @param cutoff  the time before which results are rolled up
+     * @return the offset after the last whole record of the region
+     * @throws IOException if there is an error reading the file
+     */
+    static long readRecords(FileChannel channel, long from, long to, StatisticsColumns columns, long cutoff) throws IOException {
+        long length = Math.max(0, (to - from) / RECORD_SIZE * RECORD_SIZE);
+        if (length == 0) {
+            return from;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+        CRC32 crc = new CRC32();
+        byte[] language = new byte[LANGUAGE_SIZE];
+        for (int start = 0; start < length; start += RECORD_SIZE) {
+            long timestamp = buffer.getLong(start);
+            if (timestamp != 0 && timestamp < cutoff || !intact(buffer, start, crc)) {
+                continue;
+            }
+            int languageLength = Math.max(0, Math.min(buffer.get(start + 40), LANGUAGE_SIZE));
+            buffer.get(start + 41, language, 0, languageLength);
+            columns.add(timestamp, buffer.getInt(start + 32), buffer.getDouble(start + 8),
+                    buffer.getDouble(start + 16), buffer.getDouble(start + 24), buffer.getInt(start + 36),
+                    columns.languageId(language, 0, languageLength));
+        }
+        return from + length;
+    }
+}
@@ -1,85 +1,317 @@
 package typing_speed_test.data;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages the recording, reading, and erasing of results from typing tests.
  * This class handles all file operations related to storing and retrieving typing test results.
+ * Results are stored in a binary log of fixed-width records, see ResultsLog.
+ * A results file in the former text format is migrated into the log once and then kept with a ".migrated" suffix.
+ * New results are appended by a background writer, so recording a result never waits for the disk.
+ * Results older than a retention window can be compacted into daily and weekly rollups, see ResultsRollups,
+ * which are kept in a separate file next to the results file.
+ * Registered listeners are told about every recorded result and every erasure.
+ * Several instances of the application may record into the same files; appends, compaction and erasure
+ * of one instance hold an exclusive lock of the results file, see ResultsLock.
  */
 public class ResultsRecorder {
+    // Daily rollups of weeks ending this long before the cutoff are merged into weekly ones
+    private static final long DAILY_ROLLUP_MILLIS = TimeUnit.DAYS.toMillis(90);
+
     private final Path resultsPath;
+    private final Path rollupsPath;
+    private final ResultsWriter writer;
+    private final List<ResultsListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
-     * Constructs a ResultsRecorder.
+     * Constructs a ResultsRecorder which forces every recorded result to the disk.
      *
-     * @param baseFilename the name of the file used to store results
+     * @param baseFilename the name of the file used to store results, without an extension
      */
     public ResultsRecorder(String baseFilename) {
+        this(baseFilename, DurabilityPolicy.EVERY_RECORD, 0);
+    }
+
+    /**
+     * Constructs a ResultsRecorder with the given durability of recorded results.
+     *
+     * @param baseFilename   the name of the file used to store results, without an extension
+     * @param policy         when recorded results are forced to the disk
+     * @param intervalMillis the interval between forces with the INTERVAL policy
+     */
+    public ResultsRecorder(String baseFilename, DurabilityPolicy policy, long intervalMillis) {
         String userHome = System.getProperty("user.home");
-        resultsPath = Paths.get(userHome, baseFilename);
+        resultsPath = Paths.get(userHome, baseFilename + ".bin");
+        rollupsPath = Paths.get(userHome, baseFilename + ".rollups.bin");
         try {
             Files.createDirectories(resultsPath.getParent());
             if (Files.notExists(resultsPath)) {
-                Files.createFile(resultsPath);
+                createResultsFile(Paths.get(userHome, baseFilename + ".txt"));
             }
+            writer = new ResultsWriter(resultsPath, policy, intervalMillis);
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates the results file, filled with the results of a text file in the former format if there is one.
+     * The file is written under a temporary name first, so an interrupted migration is started again next time.
+     * When another instance starting at the same time creates the file first, its file is kept.
+     *
+     * @param legacyPath the results file in the former text format
+     * @throws IOException if there is an error reading or writing the files
+     */
+    private void createResultsFile(Path legacyPath) throws IOException {
+        List<StatisticsData> migrated = Files.exists(legacyPath)
+                ? ResultsTextParser.parseParallel(legacyPath).getResults()
+                : List.of();
+
+        Path temporary = Files.createTempFile(resultsPath.getParent(), resultsPath.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            ResultsLog.writeHeader(channel);
+            ByteBuffer buffer = ByteBuffer.allocate(migrated.size() * ResultsLog.RECORD_SIZE);
+            for (StatisticsData data : migrated) {
+                ResultsLog.encode(data, buffer);
+            }
+            buffer.flip();
+            long position = ResultsLog.HEADER_SIZE;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+        try {
+            Files.move(temporary, resultsPath);
+        } catch (FileAlreadyExistsException e) {
+            Files.delete(temporary);
+            return;
+        }
+
+        if (Files.exists(legacyPath)) {
+            Files.move(legacyPath, legacyPath.resolveSibling(legacyPath.getFileName() + ".migrated"));
         }
     }
 
     /**
      * Records a single result of a typing test into the results file.
      * The result includes various metrics such as words per minute, accuracy, duration, and language.
+     * It is queued for the background writer and this method returns without waiting for it to be written.
      *
-     * @param enteredWords array of words entered by the user during the test
+     * @param enteredWords number of words entered by the user during the test
      * @param wpm words per minute achieved
      * @param accuracyWords accuracy percentage over words typed
      * @param accuracyLetters accuracy percentage over letters typed
      * @param duration duration of the test in seconds
      * @param selectedLanguage the language used during the test
      */
-    public void recordResult(String[] enteredWords, int wpm, double accuracyWords, double accuracyLetters, int duration, String selectedLanguage) {
+    public void recordResult(int enteredWords, int wpm, double accuracyWords, double accuracyLetters, int duration, String selectedLanguage) {
+        StatisticsData data = StatisticsData.of(System.currentTimeMillis(), enteredWords, wpm,
+                accuracyWords, accuracyLetters, duration, selectedLanguage);
+        writer.append(data);
+        for (ResultsListener listener : listeners) {
+            listener.resultRecorded(data);
+        }
+    }
 
-        String result = "Correct words typed: " + enteredWords.length + ", WPM: " + wpm +
-                ", Accuracy over words: " + String.format("%.2f%%", accuracyWords) +
-                ", Accuracy over letters: " + String.format("%.2f%%", accuracyLetters) +
-                ", Duration: " + duration +
-                ", Language: " + selectedLanguage;
-        try {
-            Files.writeString(resultsPath, result + System.lineSeparator(), StandardOpenOption.APPEND);
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Registers a listener told about every recorded result and every erasure.
+     *
+     * @param listener the listener to add
+     */
+    public void addResultsListener(ResultsListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeResultsListener(ResultsListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Waits until all recorded results are written to the results file.
+     */
+    void flush() {
+        writer.flush();
+    }
+
+    /**
+     * Returns the path of the results file.
+     *
+     * @return the path of the file storing the results
+     */
+    public Path getResultsPath() {
+        return resultsPath;
+    }
+
+    /**
+     * Returns the path of the file storing the rollups of compacted results.
+     *
+     * @return the path of the rollup file, which does not exist before the first compaction
+     */
+    Path getRollupsPath() {
+        return rollupsPath;
+    }
+
+    /**
+     * Writes all recorded results into a text file, one line per result in the human-readable format.
+     * Results which have been compacted into rollups are not included.
+     *
+     * @param file the text file to write, replaced if it exists
+     * @throws IOException if there is an error reading the results or writing the file
+     */
+    public void exportText(Path file) throws IOException {
+        writer.flush();
+        // The cutoff is read first, so results rolled up meanwhile are missing from the log rather than exported twice
+        long cutoff = ResultsRollups.read(rollupsPath).getCutoff();
+        List<StatisticsData> results = ResultsLog.read(resultsPath, cutoff);
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            for (StatisticsData data : results) {
+                out.write("Correct words typed: " + data.getEnteredWords() + ", WPM: " + Math.round(data.getWpm()) +
+                        ", Accuracy over words: " + String.format("%.2f%%", data.getAccuracyWords()) +
+                        ", Accuracy over letters: " + String.format("%.2f%%", data.getAccuracyLetters()) +
+                        ", Duration: " + data.getDuration() +
+                        ", Language: " + data.getLanguage());
+                out.newLine();
+            }
         }
     }
 
     /**
-     * Reads and returns all recorded results from the results file.
+     * Imports the results of a text file in the human-readable format, appending them to the recorded results.
+     * Imported results have no timestamp. Lines which cannot be parsed are skipped.
+     * Listeners are told about all imported results at once. The caller waits while the writer's queue is full,
+     * so this is not to be called on the event dispatch thread.
      *
-     * @return a list of strings, each representing a recorded result
+     * @param file the text file to import
+     * @return the number of skipped lines
+     * @throws IOException if there is an error reading the file
      */
-    public List<String> readResults() {
-        try {
-            return Files.readAllLines(resultsPath);
-        } catch (IOException e) {
-            e.printStackTrace();
-            return List.of();
+    public int importText(Path file) throws IOException {
+        ResultsTextParser.ParsedResults parsed = ResultsTextParser.parseParallel(file);
+        List<StatisticsData> results = parsed.getResults();
+        for (StatisticsData data : results) {
+            writer.append(data);
+        }
+        for (ResultsListener listener : listeners) {
+            listener.resultsRecorded(results);
         }
+        return parsed.getMalformed();
     }
 
     /**
-     * Erases all recorded results by clearing the contents of the results file.
+     * Starts a background job which compacts the results older than the retention window
+     * once soon after the start and then once a day.
+     *
+     * @param retentionMillis how long results are kept individually
+     */
+    public void scheduleCompaction(long retentionMillis) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "results-compactor");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                compactResults(retentionMillis);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, 10, TimeUnit.DAYS.toSeconds(1), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Rolls the results recorded before the start of the day at the beginning of the retention window
+     * up into daily buckets and removes them from the results file. Results without a timestamp are kept.
+     * <p>
+     * The rollups are written first, together with the new cutoff, so after a failure between the two steps
+     * the results still in the results file are recognized by their timestamp as rolled up, skipped
+     * when read and removed by the next compaction, even if it has nothing new to roll up.
+     * <p>
+     * Both files are read and written under the lock of the results file, so compactions and erasures,
+     * also of other instances sharing the files, run one after another and a later compaction finds the work already done.
+     *
+     * @param retentionMillis how long results are kept individually
+     * @throws IOException if there is an error reading or writing the files
+     */
+    public void compactResults(long retentionMillis) throws IOException {
+        ZoneId zone = ZoneId.systemDefault();
+        long cutoff = ResultsRollups.startOfDay(System.currentTimeMillis() - retentionMillis, zone);
+
+        writer.flush();
+        writer.rewrite((source, target) -> {
+            ResultsRollups rollups = ResultsRollups.read(rollupsPath);
+            List<StatisticsData> results = new ArrayList<>();
+            ResultsLog.readRecords(source, ResultsLog.HEADER_SIZE, source.size(), results);
+            boolean rolled = false;
+            // Results already rolled up are left over by a compaction which failed before the rewrite
+            boolean stale = false;
+            for (StatisticsData data : results) {
+                long timestamp = data.getTimestamp();
+                if (timestamp == 0) {
+                    continue;
+                }
+                if (timestamp < rollups.getCutoff()) {
+                    stale = true;
+                } else if (timestamp < cutoff) {
+                    rollups.add(data, zone);
+                    rolled = true;
+                }
+            }
+            if (rolled) {
+                rollups.mergeWeeks(cutoff - DAILY_ROLLUP_MILLIS, zone);
+                rollups.setCutoff(cutoff);
+                rollups.write(rollupsPath);
+            } else if (!stale) {
+                return false;
+            }
+
+            long kept = rollups.getCutoff();
+            results.removeIf(data -> data.getTimestamp() != 0 && data.getTimestamp() < kept);
+            ByteBuffer buffer = ByteBuffer.allocate(results.size() * ResultsLog.RECORD_SIZE);
+            for (StatisticsData data : results) {
+                ResultsLog.encode(data, buffer);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Erases all recorded results by removing the rollups and truncating the results file to its header.
+     * Waits for a compaction in progress, so it is not to be called on the event dispatch thread.
      */
     public void eraseResults() {
         try {
-            // Erase the content of the file
-            Files.newBufferedWriter(resultsPath, StandardOpenOption.TRUNCATE_EXISTING).close();
+            writer.erase(rollupsPath);
+            for (ResultsListener listener : listeners) {
+                listener.resultsErased();
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,406 @@
+package typing_speed_test.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.channels.FileChannel;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Aggregates of the results older than the retention window, and their file format.
+ * Results are rolled up into one bucket per day, language and duration, and daily buckets
+ * which are old enough are merged into one bucket per week. Every bucket keeps the count, the sums,
+ * the minimum and the maximum of the results and a histogram of their whole WPM, so the percentiles
+ * of old results stay exact for the whole-number WPM recorded by tests.
+ * <p>
+ * The file starts with the magic number, the format version, three reserved bytes, the cutoff and the number
+ * of buckets. Every bucket is the start of its day or week in milliseconds since the epoch, the period,
+ * the duration, the language as a length byte followed by UTF-8, the count, the sums of WPM, of the accuracies
+ * over words and letters and of entered words, the minimum and the maximum WPM, and the non-empty buckets of
+ * the histogram as pairs of the WPM byte and the count. The file ends with a CRC32 of everything before it.
+ * The file is always written whole under a temporary name and then moved over the previous one.
+ * <p>
+ * All results with a timestamp before the cutoff are part of the buckets, so any such results still
+ * in the results file are left out when the results are read.
+ */
+final class ResultsRollups {
+    static final int MAGIC = 0x54524f4c; // "TROL"
+    static final byte VERSION = 1;
+    static final byte DAY = 0;
+    static final byte WEEK = 1;
+
+    /**
+     * Aggregate of the results of one language and duration within a day or a week.
+     */
+    static final class Bucket {
+        private final long start;
+        private final byte period;
+        private final String language;
+        private final int duration;
+        private int count;
+        private double wpmSum;
+        private double accuracyWordsSum;
+        private double accuracyLettersSum;
+        private long enteredWordsSum;
+        private double wpmMin = Double.POSITIVE_INFINITY;
+        private double wpmMax = Double.NEGATIVE_INFINITY;
+        private final int[] histogram = new int[StatisticsIndex.WPM_BUCKETS];
+
+        /**
+         * Constructs an empty Bucket.
+         *
+         * @param start    the start of the day or week in milliseconds since the epoch
+         * @param period   DAY or WEEK
+         * @param language the language of the results
+         * @param duration the duration of the results in seconds
+         */
+        private Bucket(long start, byte period, String language, int duration) {
+            this.start = start;
+            this.period = period;
+            this.language = language;
+            this.duration = duration;
+        }
+
+        /**
+         * Adds a result to the bucket.
+         *
+         * @param data the result
+         */
+        private void add(StatisticsData data) {
+            count++;
+            wpmSum += data.getWpm();
+            accuracyWordsSum += data.getAccuracyWords();
+            accuracyLettersSum += data.getAccuracyLetters();
+            enteredWordsSum += data.getEnteredWords();
+            wpmMin = Math.min(wpmMin, data.getWpm());
+            wpmMax = Math.max(wpmMax, data.getWpm());
+            histogram[StatisticsIndex.bucket(data.getWpm())]++;
+        }
+
+        /**
+         * Adds all results of another bucket to this one.
+         *
+         * @param other the merged bucket
+         */
+        private void merge(Bucket other) {
+            count += other.count;
+            wpmSum += other.wpmSum;
+            accuracyWordsSum += other.accuracyWordsSum;
+            accuracyLettersSum += other.accuracyLettersSum;
+            enteredWordsSum += other.enteredWordsSum;
+            wpmMin = Math.min(wpmMin, other.wpmMin);
+            wpmMax = Math.max(wpmMax, other.wpmMax);
+            for (int b = 0; b < histogram.length; b++) {
+                histogram[b] += other.histogram[b];
+            }
+        }
+
+        /**
+         * Returns the start of the day or week of the bucket.
+         *
+         * @return the start in milliseconds since the epoch
+         */
+        long getStart() {
+            return start;
+        }
+
+        /**
+         * Returns the language of the results of the bucket.
+         *
+         * @return the name of the language
+         */
+        String getLanguage() {
+            return language;
+        }
+
+        /**
+         * Returns the duration of the results of the bucket.
+         *
+         * @return the duration in seconds
+         */
+        int getDuration() {
+            return duration;
+        }
+
+        /**
+         * Returns the number of results of the bucket.
+         *
+         * @return the number of results
+         */
+        int getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the sum of the WPM of the results of the bucket.
+         *
+         * @return the sum of words per minute
+         */
+        double getWpmSum() {
+            return wpmSum;
+        }
+
+        /**
+         * Returns the sum of the accuracies over words of the results of the bucket.
+         *
+         * @return the sum of the accuracy percentages
+         */
+        double getAccuracyWordsSum() {
+            return accuracyWordsSum;
+        }
+
+        /**
+         * Returns the sum of the accuracies over letters of the results of the bucket.
+         *
+         * @return the sum of the accuracy percentages
+         */
+        double getAccuracyLettersSum() {
+            return accuracyLettersSum;
+        }
+
+        /**
+         * Returns the sum of the entered words of the results of the bucket.
+         *
+         * @return the number of words entered in all results
+         */
+        long getEnteredWordsSum() {
+            return enteredWordsSum;
+        }
+
+        /**
+         * Returns the non-empty buckets of the WPM histogram of the results.
+         *
+         * @return pairs of whole WPM and count
+         */
+        int[] getSketch() {
+            int entries = 0;
+            for (int value : histogram) {
+                if (value > 0) {
+                    entries++;
+                }
+            }
+            int[] sketch = new int[entries * 2];
+            int next = 0;
+            for (int b = 0; b < histogram.length; b++) {
+                if (histogram[b] > 0) {
+                    sketch[next++] = b;
+                    sketch[next++] = histogram[b];
+                }
+            }
+            return sketch;
+        }
+    }
+
+    private final Map<String, Bucket> buckets = new LinkedHashMap<>();
+    private long cutoff = Long.MIN_VALUE;
+
+    /**
+     * Reads the rollups of a file.
+     *
+     * @param file the rollup file
+     * @return the rollups of the file, or empty rollups if the file does not exist
+     * @throws IOException if the file cannot be read or is damaged
+     */
+    static ResultsRollups read(Path file) throws IOException {
+        ResultsRollups rollups = new ResultsRollups();
+        if (Files.notExists(file)) {
+            return rollups;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.limit() < 24 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a rollup file: " + file);
+        }
+        if (buffer.get(4) != VERSION) {
+            throw new IOException("Unsupported rollup file version " + buffer.get(4) + ": " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().limit(buffer.limit() - 4));
+        if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)) {
+            throw new IOException("Damaged rollup file: " + file);
+        }
+
+        buffer.position(8);
+        rollups.cutoff = buffer.getLong();
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            long start = buffer.getLong();
+            byte period = buffer.get();
+            int duration = buffer.getInt();
+            byte[] language = new byte[buffer.get() & 0xFF];
+            buffer.get(language);
+            Bucket bucket = new Bucket(start, period, new String(language, StandardCharsets.UTF_8), duration);
+            bucket.count = buffer.getInt();
+            bucket.wpmSum = buffer.getDouble();
+            bucket.accuracyWordsSum = buffer.getDouble();
+            bucket.accuracyLettersSum = buffer.getDouble();
+            bucket.enteredWordsSum = buffer.getLong();
+            bucket.wpmMin = buffer.getDouble();
+            bucket.wpmMax = buffer.getDouble();
+            int entries = buffer.getShort() & 0xFFFF;
+            for (int e = 0; e < entries; e++) {
+                int wpm = buffer.get() & 0xFF;
+                bucket.histogram[wpm] = buffer.getInt();
+            }
+            rollups.buckets.put(key(start, period, bucket.language, duration), bucket);
+        }
+        return rollups;
+    }
+
+    /**
+     * Writes the rollups into a file, replacing it at once when the new contents are forced to the disk.
+     *
+     * @param file the rollup file
+     * @throws IOException if the file cannot be written
+     */
+    void write(Path file) throws IOException {
+        List<byte[]> languages = new ArrayList<>();
+        int size = 4 + 4 + 8 + 4 + 4;
+        for (Bucket bucket : buckets.values()) {
+            byte[] language = bucket.language.getBytes(StandardCharsets.UTF_8);
+            languages.add(language);
+            size += 8 + 1 + 4 + 1 + language.length + 4 + 8 * 6 + 2 + bucket.getSketch().length / 2 * 5;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).put(VERSION).put(new byte[3]).putLong(cutoff).putInt(buckets.size());
+        int next = 0;
+        for (Bucket bucket : buckets.values()) {
+            byte[] language = languages.get(next++);
+            buffer.putLong(bucket.start).put(bucket.period).putInt(bucket.duration);
+            buffer.put((byte) language.length).put(language);
+            buffer.putInt(bucket.count).putDouble(bucket.wpmSum).putDouble(bucket.accuracyWordsSum)
+                    .putDouble(bucket.accuracyLettersSum).putLong(bucket.enteredWordsSum)
+                    .putDouble(bucket.wpmMin).putDouble(bucket.wpmMax);
+            int[] sketch = bucket.getSketch();
+            buffer.putShort((short) (sketch.length / 2));
+            for (int e = 0; e < sketch.length; e += 2) {
+                buffer.put((byte) sketch[e]).putInt(sketch[e + 1]);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Adds a result to the bucket of its day.
+     *
+     * @param data the result, which must have a timestamp
+     * @param zone the time zone of the days
+     */
+    void add(StatisticsData data, ZoneId zone) {
+        long start = startOfDay(data.getTimestamp(), zone);
+        buckets.computeIfAbsent(key(start, DAY, data.getLanguage(), data.getDuration()),
+                key -> new Bucket(start, DAY, data.getLanguage(), data.getDuration())).add(data);
+    }
+
+    /**
+     * Merges the daily buckets of the weeks ending before the given time into weekly buckets.
+     *
+     * @param before the time in milliseconds since the epoch before which weeks are merged
+     * @param zone   the time zone of the days
+     */
+    void mergeWeeks(long before, ZoneId zone) {
+        List<Bucket> merged = new ArrayList<>();
+        buckets.values().removeIf(bucket -> {
+            if (bucket.period != DAY) {
+                return false;
+            }
+            LocalDate monday = Instant.ofEpochMilli(bucket.start).atZone(zone).toLocalDate()
+                    .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            if (monday.plusWeeks(1).atStartOfDay(zone).toInstant().toEpochMilli() > before) {
+                return false;
+            }
+            Bucket week = new Bucket(monday.atStartOfDay(zone).toInstant().toEpochMilli(), WEEK,
+                    bucket.language, bucket.duration);
+            week.merge(bucket);
+            merged.add(week);
+            return true;
+        });
+        for (Bucket week : merged) {
+            buckets.merge(key(week.start, WEEK, week.language, week.duration), week, (existing, added) -> {
+                existing.merge(added);
+                return existing;
+            });
+        }
+    }
+
+    /**
+     * Returns all buckets.
+     *
+     * @return the buckets ordered by their start
+     */
+    List<Bucket> getBuckets() {
+        List<Bucket> sorted = new ArrayList<>(buckets.values());
+        sorted.sort(Comparator.comparingLong(Bucket::getStart));
+        return sorted;
+    }
+
+    /**
+     * Returns the time before which all results are part of the buckets.
+     *
+     * @return the cutoff in milliseconds since the epoch, Long.MIN_VALUE if nothing has been rolled up
+     */
+    long getCutoff() {
+        return cutoff;
+    }
+
+    /**
+     * Sets the time before which all results are part of the buckets.
+     *
+     * @param cutoff the cutoff in milliseconds since the epoch
+     */
+    void setCutoff(long cutoff) {
+        this.cutoff = cutoff;
+    }
+
+    /**
+     * Returns the start of the day of a time.
+     *
+     * @param time the time in milliseconds since the epoch
+     * @param zone the time zone of the days
+     * @return the start of the day in milliseconds since the epoch
+     */
+    static long startOfDay(long time, ZoneId zone) {
+        return Instant.ofEpochMilli(time).atZone(zone).toLocalDate().atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Returns the key of a bucket.
+     *
+     * @param start    the start of the day or week
+     * @param period   DAY or WEEK
+     * @param language the language of the results
+     * @param duration the duration of the results
+     * @return the key identifying the bucket
+     */
+    private static String key(long start, byte period, String language, int duration) {
+        return start + "/" + period + "/" + duration + "/" + language;
+    }
+}
@@ -0,0 +1,450 @@
+package typing_speed_test.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses results in the human-readable text format, one result per line.
+ * The file is read through a reusable byte buffer and numbers are decoded directly from its bytes,
+ * so no strings or arrays are created per line; the language names are looked up in a small dictionary.
+ * Lines which do not have the expected format are skipped and counted.
+ * Both a dot and a comma are accepted as the decimal separator, as the format depended on the locale.
+ * <p>
+ * A parser is not thread-safe. The parallel mode splits the file at line boundaries
+ * and parses the parts with separate parsers in the common fork/join pool.
+ */
+public final class ResultsTextParser {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int PARALLEL_PART_SIZE = 1 << 20;
+    private static final byte[][] LABELS = {
+            ascii("Correct words typed: "), ascii(", WPM: "), ascii(", Accuracy over words: "),
+            ascii(", Accuracy over letters: "), ascii(", Duration: "), ascii(", Language: ")
+    };
+    private static final double[] POWERS_OF_TEN = {1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+            1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18};
+
+    /**
+     * Receives the values of every parsed result.
+     */
+    public interface Sink {
+        /**
+         * Accepts a parsed result.
+         *
+         * @param enteredWords    number of words entered in the test
+         * @param wpm             words per minute achieved in the test
+         * @param accuracyWords   accuracy percentage of words
+         * @param accuracyLetters accuracy percentage of letters
+         * @param duration        duration of the test in seconds
+         * @param language        language used in the test
+         */
+        void result(int enteredWords, double wpm, double accuracyWords, double accuracyLetters, int duration, String language);
+    }
+
+    /**
+     * Results parsed from a file together with the number of skipped lines.
+     */
+    public static class ParsedResults {
+        private final List<StatisticsData> results;
+        private final int malformed;
+
+        /**
+         * Constructs a new instance of ParsedResults.
+         *
+         * @param results   the parsed results
+         * @param malformed the number of skipped lines
+         */
+        ParsedResults(List<StatisticsData> results, int malformed) {
+            this.results = results;
+            this.malformed = malformed;
+        }
+
+        /**
+         * Returns the parsed results in the order of their lines.
+         *
+         * @return the parsed results, with the timestamp 0
+         */
+        public List<StatisticsData> getResults() {
+            return results;
+        }
+
+        /**
+         * Returns the number of lines which could not be parsed.
+         *
+         * @return the number of skipped lines
+         */
+        public int getMalformed() {
+            return malformed;
+        }
+    }
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final List<byte[]> languageBytes = new ArrayList<>();
+    private final List<String> languageNames = new ArrayList<>();
+    private int malformed;
+    // Position of the byte after the last decoded number
+    private int end;
+    private long mantissa;
+
+    /**
+     * Parses a whole file sequentially, streaming it through the buffer of this parser.
+     *
+     * @param file the text file of results
+     * @param sink the receiver of the parsed results
+     * @return the number of lines which could not be parsed
+     * @throws IOException if there is an error reading the file
+     */
+    public int parse(Path file, Sink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return parse(channel, 0, channel.size(), sink);
+        }
+    }
+
+    /**
+     * Parses the lines in a region of a file which starts at a line boundary.
+     *
+     * @param channel the channel of the file
+     * @param from    the offset of the first line
+     * @param to      the end of the region, at a line boundary or the end of the file
+     * @param sink    the receiver of the parsed results
+     * @return the number of lines which could not be parsed
+     * @throws IOException if there is an error reading the file
+     */
+    int parse(FileChannel channel, long from, long to, Sink sink) throws IOException {
+        malformed = 0;
+        buffer.clear();
+        long position = from;
+        while (true) {
+            if (position < to) {
+                buffer.limit((int) Math.min(buffer.capacity(), buffer.position() + to - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    to = position;
+                } else {
+                    position += read;
+                }
+            }
+            buffer.flip();
+            byte[] bytes = buffer.array();
+            int lineStart = 0;
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (bytes[i] == '\n') {
+                    parseLine(bytes, lineStart, i, sink);
+                    lineStart = i + 1;
+                }
+            }
+
+            if (position >= to) {
+                // The last line of the region may have no line separator
+                parseLine(bytes, lineStart, buffer.limit(), sink);
+                break;
+            }
+            if (lineStart == 0 && buffer.limit() == buffer.capacity()) {
+                // A line longer than the whole buffer cannot be a result
+                malformed++;
+                buffer.clear();
+                position = nextLine(channel, position, to, buffer);
+                buffer.clear();
+            } else {
+                buffer.position(lineStart);
+                buffer.compact();
+            }
+        }
+        return malformed;
+    }
+
+    /**
+     * Parses a file in parts at line boundaries in the common fork/join pool.
+     *
+     * @param file the text file of results
+     * @return the parsed results in the order of their lines and the number of skipped lines
+     * @throws IOException if there is an error reading the file
+     */
+    public static ParsedResults parseParallel(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Long> boundaries = new ArrayList<>();
+            boundaries.add(0L);
+            long size = channel.size();
+            ByteBuffer probe = ByteBuffer.allocate(BUFFER_SIZE);
+            while (boundaries.get(boundaries.size() - 1) + PARALLEL_PART_SIZE < size) {
+                long boundary = nextLine(channel, boundaries.get(boundaries.size() - 1) + PARALLEL_PART_SIZE, size, probe);
+                if (boundary >= size) {
+                    break;
+                }
+                boundaries.add(boundary);
+            }
+            boundaries.add(size);
+
+            Part task = new Part(channel, boundaries, 0, boundaries.size() - 1);
+            ForkJoinPool.commonPool().invoke(task);
+            if (task.failure != null) {
+                throw task.failure;
+            }
+            return new ParsedResults(task.results, task.malformed);
+        }
+    }
+
+    /**
+     * Parses a range of parts of a file, splitting it in halves until a single part remains.
+     */
+    private static class Part extends RecursiveTask<Void> {
+        private static final long serialVersionUID = 1L;
+        private final FileChannel channel;
+        private final List<Long> boundaries;
+        private final int first;
+        private final int last;
+        private List<StatisticsData> results;
+        private int malformed;
+        private IOException failure;
+
+        /**
+         * Constructs a task parsing the parts from first to last, exclusive.
+         *
+         * @param channel    the channel of the file
+         * @param boundaries the offsets where the parts start, followed by the size of the file
+         * @param first      the index of the first part
+         * @param last       the index after the last part
+         */
+        Part(FileChannel channel, List<Long> boundaries, int first, int last) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.first = first;
+            this.last = last;
+        }
+
+        /**
+         * Parses the parts of this task.
+         *
+         * @return nothing
+         */
+        @Override
+        protected Void compute() {
+            if (last - first > 1) {
+                int middle = (first + last) >>> 1;
+                Part left = new Part(channel, boundaries, first, middle);
+                Part right = new Part(channel, boundaries, middle, last);
+                invokeAll(left, right);
+                failure = left.failure != null ? left.failure : right.failure;
+                results = left.results;
+                results.addAll(right.results);
+                malformed = left.malformed + right.malformed;
+                return null;
+            }
+            results = new ArrayList<>();
+            try {
+                malformed = new ResultsTextParser().parse(channel, boundaries.get(first), boundaries.get(last),
+                        (enteredWords, wpm, accuracyWords, accuracyLetters, duration, language) -> results.add(StatisticsData.of(
+                                0, enteredWords, wpm, accuracyWords, accuracyLetters, duration, language)));
+            } catch (IOException e) {
+                failure = e;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Parses a single line and passes its values to the sink, or counts it as malformed.
+     * Empty lines are ignored.
+     *
+     * @param bytes the bytes containing the line
+     * @param from  the start of the line
+     * @param to    the end of the line, excluding the line separator
+     * @param sink  the receiver of the parsed result
+     */
+    private void parseLine(byte[] bytes, int from, int to, Sink sink) {
+        if (to > from && bytes[to - 1] == '\r') {
+            to--;
+        }
+        if (to == from) {
+            return;
+        }
+
+        int position = from;
+        int enteredWords;
+        double wpm;
+        double accuracyWords;
+        double accuracyLetters;
+        int duration;
+
+        if ((position = label(bytes, position, to, 0)) < 0 || !number(bytes, position, to, false)) {
+            malformed++;
+            return;
+        }
+        enteredWords = (int) mantissa;
+        if ((position = label(bytes, end, to, 1)) < 0) {
+            malformed++;
+            return;
+        }
+        wpm = decimal(bytes, position, to);
+        if (Double.isNaN(wpm) || (position = label(bytes, end, to, 2)) < 0) {
+            malformed++;
+            return;
+        }
+        accuracyWords = decimal(bytes, position, to);
+        if (Double.isNaN(accuracyWords) || (position = label(bytes, percent(bytes, end, to), to, 3)) < 0) {
+            malformed++;
+            return;
+        }
+        accuracyLetters = decimal(bytes, position, to);
+        if (Double.isNaN(accuracyLetters) || (position = label(bytes, percent(bytes, end, to), to, 4)) < 0
+                || !number(bytes, position, to, false)) {
+            malformed++;
+            return;
+        }
+        duration = (int) mantissa;
+        if ((position = label(bytes, end, to, 5)) < 0 || position == to) {
+            malformed++;
+            return;
+        }
+        sink.result(enteredWords, wpm, accuracyWords, accuracyLetters, duration, language(bytes, position, to));
+    }
+
+    /**
+     * Matches one of the labels of the format.
+     *
+     * @param bytes    the bytes of the line
+     * @param position the position where the label is expected
+     * @param to       the end of the line
+     * @param index    the index of the label
+     * @return the position after the label, or -1 if it does not match
+     */
+    private static int label(byte[] bytes, int position, int to, int index) {
+        byte[] label = LABELS[index];
+        if (position < 0 || to - position < label.length) {
+            return -1;
+        }
+        for (int i = 0; i < label.length; i++) {
+            if (bytes[position + i] != label[i]) {
+                return -1;
+            }
+        }
+        return position + label.length;
+    }
+
+    /**
+     * Skips a percent sign.
+     *
+     * @param bytes    the bytes of the line
+     * @param position the position where the sign is expected
+     * @param to       the end of the line
+     * @return the position after the sign, or -1 if there is none
+     */
+    private static int percent(byte[] bytes, int position, int to) {
+        return position < to && bytes[position] == '%' ? position + 1 : -1;
+    }
+
+    /**
+     * Decodes a non-negative integer of at most 18 digits into the mantissa, setting the end of the number.
+     *
+     * @param bytes     the bytes of the line
+     * @param position  the position of the first digit
+     * @param to        the end of the line
+     * @param continued whether the digits continue the mantissa of a decimal number
+     * @return true if there was at least one digit
+     */
+    private boolean number(byte[] bytes, int position, int to, boolean continued) {
+        if (!continued) {
+            mantissa = 0;
+        }
+        int start = position;
+        while (position < to && bytes[position] >= '0' && bytes[position] <= '9' && position - start < 18) {
+            mantissa = mantissa * 10 + (bytes[position] - '0');
+            position++;
+        }
+        end = position;
+        return position > start && (position == to || bytes[position] < '0' || bytes[position] > '9');
+    }
+
+    /**
+     * Decodes a non-negative decimal number with a dot or a comma as the decimal separator, setting its end.
+     * With at most 15 digits both the mantissa and the power of ten are exact doubles,
+     * so their quotient is the correctly rounded value given by Double.parseDouble.
+     *
+     * @param bytes    the bytes of the line
+     * @param position the position of the first digit
+     * @param to       the end of the line
+     * @return the decoded number, or NaN if there is none
+     */
+    private double decimal(byte[] bytes, int position, int to) {
+        if (!number(bytes, position, to, false)) {
+            return Double.NaN;
+        }
+        int integerEnd = end;
+        if (end + 1 < to && (bytes[end] == '.' || bytes[end] == ',')
+                && bytes[end + 1] >= '0' && bytes[end + 1] <= '9') {
+            if (!number(bytes, end + 1, to, true) || end - position - 1 > 15) {
+                return Double.NaN;
+            }
+            return mantissa / POWERS_OF_TEN[end - integerEnd - 1];
+        }
+        return mantissa;
+    }
+
+    /**
+     * Returns the language at the end of the line, reusing the string of an equal language seen before.
+     *
+     * @param bytes the bytes of the line
+     * @param from  the start of the language
+     * @param to    the end of the line
+     * @return the language
+     */
+    private String language(byte[] bytes, int from, int to) {
+        int length = to - from;
+        for (int i = 0; i < languageBytes.size(); i++) {
+            byte[] known = languageBytes.get(i);
+            if (known.length == length && Arrays.equals(known, 0, length, bytes, from, to)) {
+                return languageNames.get(i);
+            }
+        }
+        byte[] copy = Arrays.copyOfRange(bytes, from, to);
+        String name = new String(copy, StandardCharsets.UTF_8);
+        languageBytes.add(copy);
+        languageNames.add(name);
+        return name;
+    }
+
+    /**
+     * Finds the start of the line following the given offset.
+     *
+     * @param channel the channel of the file
+     * @param offset  the offset to search from
+     * @param to      the end of the region
+     * @param probe   a buffer used for reading
+     * @return the offset after the next line separator, or the end of the region
+     * @throws IOException if there is an error reading the file
+     */
+    private static long nextLine(FileChannel channel, long offset, long to, ByteBuffer probe) throws IOException {
+        while (offset < to) {
+            probe.clear();
+            int read = channel.read(probe, offset);
+            if (read <= 0) {
+                return to;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return to;
+    }
+
+    /**
+     * Encodes a label of the format.
+     *
+     * @param text the label
+     * @return the ASCII bytes of the label
+     */
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,343 @@
+package typing_speed_test.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends results to the results file on a background thread through a channel which stays open.
+ * Results wait in a bounded queue and all results waiting when the thread wakes up are written
+ * with a single write and forced together according to the durability policy.
+ * A shutdown hook writes the remaining results and forces the file before the application exits.
+ * <p>
+ * Several instances of the application may share the file. Every batch is written at the end of the file
+ * under an exclusive ResultsLock, so batches of different processes never overlap. A file replaced
+ * by another process is recognized by its file key under the lock and opened again before writing.
+ * Where the file system has no file keys, a replacement is recognized by its generation instead, which
+ * a rewrite increases in the replacement only. This is read through a channel of its own which is closed
+ * while the file is locked, so it relies on locks held per channel as on Windows; where closing any channel
+ * releases the locks of the process, as on POSIX systems, the file systems are expected to have file keys.
+ */
+final class ResultsWriter {
+
+    /**
+     * Copies the records to keep from the results file into its replacement.
+     */
+    interface Rewrite {
+        /**
+         * Writes the records to keep after the header of the replacement.
+         *
+         * @param source the channel of the results file
+         * @param target the channel of the replacement, positioned after its header
+         * @return whether the results file is to be replaced, false leaves it unchanged
+         * @throws IOException if there is an error reading or writing the files
+         */
+        boolean copy(FileChannel source, FileChannel target) throws IOException;
+    }
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final long FLUSH_CHECK_MILLIS = 1000;
+    // Queued by close to stop the writer thread, which must not be interrupted while it uses the channel
+    private static final StatisticsData CLOSE = StatisticsData.of(0, 0, 0, 0, 0, 0, "");
+
+    private final Path file;
+    // Guards the channel, which is replaced when the file is rewritten
+    private final Object fileLock = new Object();
+    private FileChannel channel;
+    // Identifies the file the channel was opened on, null where the file system has no file keys
+    private Object fileKey;
+    private final DurabilityPolicy policy;
+    private final long intervalNanos;
+    private final BlockingQueue<StatisticsData> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread thread;
+    private final Object lock = new Object();
+    private long enqueued;
+    private long written;
+    private boolean closed;
+
+    /**
+     * Opens the results file and starts the writer thread.
+     *
+     * @param file           the results file, which must already have its header
+     * @param policy         when written results are forced
+     * @param intervalMillis the interval between forces with the INTERVAL policy
+     * @throws IOException if the file cannot be opened
+     */
+    ResultsWriter(Path file, DurabilityPolicy policy, long intervalMillis) throws IOException {
+        this.file = file;
+        open();
+        this.policy = policy;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        thread = new Thread(this::run, "results-writer");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "results-writer-shutdown"));
+    }
+
+    /**
+     * Queues a result to be written. The caller waits only if the queue is full,
+     * which happens only when the storage has stopped accepting writes.
+     *
+     * @param data the result to write
+     */
+    void append(StatisticsData data) {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            enqueued++;
+        }
+        try {
+            queue.put(data);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until all results queued so far are written to the file, though not necessarily forced.
+     * Stops waiting if the writer thread has died.
+     */
+    void flush() {
+        synchronized (lock) {
+            long target = enqueued;
+            while (written < target && !closed && thread.isAlive()) {
+                try {
+                    // A dying writer thread cannot notify, so its liveness is checked periodically
+                    lock.wait(FLUSH_CHECK_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all results from the results file after all queued results are written,
+     * increasing the generation of the file so readers know they have to read it again.
+     *
+     * @param rollups the rollup file of the results, deleted under the same lock
+     * @throws IOException if the file cannot be truncated
+     */
+    void erase(Path rollups) throws IOException {
+        flush();
+        synchronized (fileLock) {
+            try (ResultsLock lock = lockCurrent()) {
+                FileChannel locked = lock.channel();
+                Files.deleteIfExists(rollups);
+                locked.truncate(ResultsLog.HEADER_SIZE);
+                ResultsLog.writeGeneration(locked, ResultsLog.readGeneration(locked) + 1);
+                locked.force(false);
+            }
+        }
+    }
+
+    /**
+     * Replaces the results file by a copy of the records to keep, with the next generation.
+     * The copy is written under a temporary name, forced and then moved over the results file,
+     * so the file always holds either all or only the kept records. Results appended meanwhile,
+     * also by other processes, wait for the replacement and are then written to it.
+     *
+     * @param rewrite the copy of the kept records
+     * @throws IOException if the replacement cannot be written
+     */
+    void rewrite(Rewrite rewrite) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        synchronized (fileLock) {
+            try (ResultsLock lock = lockCurrent()) {
+                FileChannel locked = lock.channel();
+                boolean replace;
+                try (FileChannel target = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    ResultsLog.writeHeader(target);
+                    ResultsLog.writeGeneration(target, ResultsLog.readGeneration(locked) + 1);
+                    target.position(ResultsLog.HEADER_SIZE);
+                    replace = rewrite.copy(locked, target);
+                    if (replace) {
+                        target.force(true);
+                    }
+                }
+                if (!replace) {
+                    Files.delete(temporary);
+                    return;
+                }
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                // Closing the channel releases the lock, which other processes waiting for it
+                // then find on a file which is no longer the results file
+                locked.close();
+            }
+            open();
+        }
+    }
+
+    /**
+     * Opens the channel on the results file and remembers which file it is.
+     * The file key is read before and after opening, so a file replaced meanwhile is not mistaken for the channel's.
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    private void open() throws IOException {
+        while (true) {
+            Object before = fileKey();
+            FileChannel opened = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Object after = fileKey();
+            if (after == null || after.equals(before)) {
+                channel = opened;
+                fileKey = after;
+                return;
+            }
+            opened.close();
+        }
+    }
+
+    /**
+     * Returns the file key of the file currently at the path of the results file.
+     *
+     * @return the file key, or null where the file system has none
+     * @throws IOException if the attributes of the file cannot be read
+     */
+    private Object fileKey() throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    }
+
+    /**
+     * Locks the results file exclusively, first opening it again if another process has replaced it.
+     *
+     * @return the lock, released by closing it
+     * @throws IOException if the file cannot be opened or locked
+     */
+    private ResultsLock lockCurrent() throws IOException {
+        while (true) {
+            ResultsLock lock = ResultsLock.acquire(channel, file, false);
+            if (!replaced()) {
+                return lock;
+            }
+            // The stale channel is closed before other threads may lock the file again
+            channel.close();
+            lock.close();
+            open();
+        }
+    }
+
+    /**
+     * Checks whether the channel is no longer open on the file at the path of the results file.
+     * The caller holds the lock of the file.
+     *
+     * @return true if another process has replaced the file since the channel was opened
+     * @throws IOException if the file at the path cannot be read
+     */
+    private boolean replaced() throws IOException {
+        if (fileKey != null) {
+            return !fileKey.equals(fileKey());
+        }
+        // Erasing increases the generation in place, so only a replacement makes the two differ
+        try (FileChannel current = FileChannel.open(file, StandardOpenOption.READ)) {
+            return ResultsLog.readGeneration(current) != ResultsLog.readGeneration(channel);
+        }
+    }
+
+    /**
+     * Writes the remaining results, forces the file and closes it.
+     */
+    void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            queue.put(CLOSE);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes queued results in batches until the writer is closed.
+     */
+    private void run() {
+        List<StatisticsData> batch = new ArrayList<>();
+        long lastForce = System.nanoTime();
+        boolean dirty = false;
+        boolean closing = false;
+        while (!closing) {
+            try {
+                // With pending data the wait ends in time to force it within the interval
+                StatisticsData first = dirty && policy == DurabilityPolicy.INTERVAL
+                        ? queue.poll(Math.max(0, lastForce + intervalNanos - System.nanoTime()), TimeUnit.NANOSECONDS)
+                        : queue.take();
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                }
+            } catch (InterruptedException e) {
+                continue;
+            }
+            closing = batch.remove(CLOSE);
+
+            try {
+                synchronized (fileLock) {
+                    if (!batch.isEmpty()) {
+                        try (ResultsLock lock = lockCurrent()) {
+                            write(lock.channel(), batch);
+                        }
+                        dirty = true;
+                    }
+                    if (dirty && (closing || policy == DurabilityPolicy.EVERY_RECORD
+                            || policy == DurabilityPolicy.INTERVAL && System.nanoTime() - lastForce >= intervalNanos)) {
+                        channel.force(false);
+                        lastForce = System.nanoTime();
+                        dirty = false;
+                    }
+                    if (closing) {
+                        ResultsLock.close(channel, file);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                synchronized (lock) {
+                    written += batch.size();
+                    lock.notifyAll();
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes a batch of results to the end of the file with a single write.
+     * The caller holds the exclusive lock, so the end of the file cannot move meanwhile.
+     *
+     * @param channel the channel of the locked results file
+     * @param batch   the results to write
+     * @throws IOException if there is an error writing the file
+     */
+    private static void write(FileChannel channel, List<StatisticsData> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(batch.size() * ResultsLog.RECORD_SIZE);
+        for (StatisticsData data : batch) {
+            ResultsLog.encode(data, buffer);
+        }
+        buffer.flip();
+        long position = channel.size();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
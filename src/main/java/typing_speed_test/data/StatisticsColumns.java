@@ -0,0 +1,308 @@
+package typing_speed_test.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recorded results stored column by column in primitive arrays, which double their capacity when full.
+ * Languages are stored as small integer ids into a dictionary of language names,
+ * so a result takes 52 bytes no matter how many results there are.
+ * The first rows may be rollups of older results, holding their averages, count and WPM histogram.
+ * Values are read by the index of the result and a column, without copying.
+ * The store is not thread-safe.
+ */
+public class StatisticsColumns {
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Numeric columns of the store.
+     */
+    public enum Column {
+        /** Words per minute. */
+        WPM,
+        /** Accuracy percentage over words. */
+        ACCURACY_WORDS,
+        /** Accuracy percentage over letters. */
+        ACCURACY_LETTERS,
+        /** Number of entered words. */
+        ENTERED_WORDS,
+        /** Duration of the test in seconds. */
+        DURATION,
+        /** End of the test in milliseconds since the epoch, 0 if unknown. */
+        TIMESTAMP
+    }
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private double[] wpm = new double[INITIAL_CAPACITY];
+    private double[] accuracyWords = new double[INITIAL_CAPACITY];
+    private double[] accuracyLetters = new double[INITIAL_CAPACITY];
+    private int[] enteredWords = new int[INITIAL_CAPACITY];
+    private int[] durations = new int[INITIAL_CAPACITY];
+    private int[] languageIds = new int[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int size;
+    // WPM histograms of the rollups, which are the first rows
+    private final List<int[]> sketches = new ArrayList<>();
+
+    private final List<String> languageNames = new ArrayList<>();
+    private final List<byte[]> languageBytes = new ArrayList<>();
+    private final Map<String, Integer> languageIndex = new HashMap<>();
+
+    /**
+     * Appends a result.
+     *
+     * @param timestamp       the end of the test in milliseconds since the epoch, or 0 if unknown
+     * @param enteredWords    number of words entered in the test
+     * @param wpm             words per minute achieved in the test
+     * @param accuracyWords   accuracy percentage of words
+     * @param accuracyLetters accuracy percentage of letters
+     * @param duration        duration of the test in seconds
+     * @param languageId      the id of the language of the test
+     */
+    public void add(long timestamp, int enteredWords, double wpm, double accuracyWords, double accuracyLetters, int duration, int languageId) {
+        if (size == timestamps.length) {
+            grow();
+        }
+        this.timestamps[size] = timestamp;
+        this.enteredWords[size] = enteredWords;
+        this.wpm[size] = wpm;
+        this.accuracyWords[size] = accuracyWords;
+        this.accuracyLetters[size] = accuracyLetters;
+        this.durations[size] = duration;
+        this.languageIds[size] = languageId;
+        this.counts[size] = 1;
+        size++;
+    }
+
+    /**
+     * Appends an aggregate of older results as a single row holding their averages.
+     * Rollups must be added before any result.
+     *
+     * @param start                the start of the aggregated period in milliseconds since the epoch
+     * @param count                the number of aggregated results
+     * @param wpmSum               the sum of words per minute of the results
+     * @param accuracyWordsSum     the sum of the accuracy percentages of words
+     * @param accuracyLettersSum   the sum of the accuracy percentages of letters
+     * @param enteredWordsSum      the sum of entered words
+     * @param duration             duration of the tests in seconds
+     * @param languageId           the id of the language of the tests
+     * @param sketch               the histogram of whole WPM as pairs of WPM and count
+     */
+    public void addRollup(long start, int count, double wpmSum, double accuracyWordsSum, double accuracyLettersSum,
+                          long enteredWordsSum, int duration, int languageId, int[] sketch) {
+        if (sketches.size() != size) {
+            throw new IllegalStateException("Rollups must be added before results");
+        }
+        add(start, (int) (enteredWordsSum / count), wpmSum / count, accuracyWordsSum / count,
+                accuracyLettersSum / count, duration, languageId);
+        counts[size - 1] = count;
+        sketches.add(sketch);
+    }
+
+    /**
+     * Appends a result.
+     *
+     * @param data the result to append
+     */
+    public void add(StatisticsData data) {
+        add(data.getTimestamp(), data.getEnteredWords(), data.getWpm(), data.getAccuracyWords(),
+                data.getAccuracyLetters(), data.getDuration(), languageId(data.getLanguage()));
+    }
+
+    /**
+     * Doubles the capacity of all columns.
+     */
+    private void grow() {
+        int capacity = timestamps.length * 2;
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        wpm = Arrays.copyOf(wpm, capacity);
+        accuracyWords = Arrays.copyOf(accuracyWords, capacity);
+        accuracyLetters = Arrays.copyOf(accuracyLetters, capacity);
+        enteredWords = Arrays.copyOf(enteredWords, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        languageIds = Arrays.copyOf(languageIds, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+    }
+
+    /**
+     * Removes all results, keeping the capacity and the dictionary of languages.
+     */
+    public void clear() {
+        size = 0;
+        sketches.clear();
+    }
+
+    /**
+     * Returns the number of stored results.
+     *
+     * @return the number of results
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a numeric value of a result.
+     *
+     * @param column the column of the value
+     * @param index  the index of the result, oldest first
+     * @return the value
+     */
+    public double value(Column column, int index) {
+        switch (column) {
+            case WPM:
+                return wpm[index];
+            case ACCURACY_WORDS:
+                return accuracyWords[index];
+            case ACCURACY_LETTERS:
+                return accuracyLetters[index];
+            case ENTERED_WORDS:
+                return enteredWords[index];
+            case DURATION:
+                return durations[index];
+            default:
+                return timestamps[index];
+        }
+    }
+
+    /**
+     * Returns the words per minute of a result.
+     *
+     * @param index the index of the result
+     * @return the rate of words per minute
+     */
+    public double getWpm(int index) {
+        return wpm[index];
+    }
+
+    /**
+     * Returns the duration of a result.
+     *
+     * @param index the index of the result
+     * @return the duration in seconds
+     */
+    public int getDuration(int index) {
+        return durations[index];
+    }
+
+    /**
+     * Returns when the test of a result was taken.
+     *
+     * @param index the index of the result
+     * @return the end of the test in milliseconds since the epoch, or 0 if unknown
+     */
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    /**
+     * Returns the id of the language of a result.
+     *
+     * @param index the index of the result
+     * @return the language id
+     */
+    public int getLanguageId(int index) {
+        return languageIds[index];
+    }
+
+    /**
+     * Returns the number of results of a row, which is more than one for a rollup.
+     *
+     * @param index the index of the row
+     * @return the number of results
+     */
+    public int getCount(int index) {
+        return counts[index];
+    }
+
+    /**
+     * Returns the WPM histogram of a rollup.
+     *
+     * @param index the index of the row
+     * @return pairs of whole WPM and count, or null if the row is a single result
+     */
+    public int[] getSketch(int index) {
+        return index < sketches.size() ? sketches.get(index) : null;
+    }
+
+    /**
+     * Returns a result as a StatisticsData object.
+     *
+     * @param index the index of the result
+     * @return a new object holding the values of the result
+     */
+    public StatisticsData get(int index) {
+        return StatisticsData.of(timestamps[index], enteredWords[index], wpm[index], accuracyWords[index],
+                accuracyLetters[index], durations[index], languageNames.get(languageIds[index]));
+    }
+
+    /**
+     * Returns the id of a language, adding it to the dictionary if it is new.
+     *
+     * @param language the name of the language
+     * @return the language id
+     */
+    public int languageId(String language) {
+        Integer id = languageIndex.get(language);
+        if (id == null) {
+            id = languageNames.size();
+            languageNames.add(language);
+            languageBytes.add(language.getBytes(StandardCharsets.UTF_8));
+            languageIndex.put(language, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of a language without adding it to the dictionary.
+     *
+     * @param language the name of the language
+     * @return the language id, or -1 if the language is not in the dictionary
+     */
+    public int findLanguageId(String language) {
+        Integer id = languageIndex.get(language);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the id of a language given by its UTF-8 bytes, adding it to the dictionary if it is new.
+     * Known languages are found without decoding the bytes.
+     *
+     * @param bytes  the array containing the name
+     * @param offset the start of the name
+     * @param length the length of the name in bytes
+     * @return the language id
+     */
+    public int languageId(byte[] bytes, int offset, int length) {
+        for (int id = 0; id < languageBytes.size(); id++) {
+            byte[] known = languageBytes.get(id);
+            if (Arrays.equals(known, 0, known.length, bytes, offset, offset + length)) {
+                return id;
+            }
+        }
+        return languageId(new String(bytes, offset, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the name of a language.
+     *
+     * @param languageId the language id
+     * @return the name of the language
+     */
+    public String getLanguageName(int languageId) {
+        return languageNames.get(languageId);
+    }
+
+    /**
+     * Returns the number of languages in the dictionary.
+     *
+     * @return the number of language ids
+     */
+    public int getLanguageCount() {
+        return languageNames.size();
+    }
+}
@@ -6,6 +6,8 @@ package typing_speed_test.data;
  */
 
 public class StatisticsData {
+    private final long timestamp;
+    private final int enteredWords;
     private final double accuracyWords;
     private final double accuracyLetters;
     private final double wpm;
@@ -15,13 +17,17 @@ public class StatisticsData {
     /**
      * Constructs a new instance of StatisticsData.
      *
+     * @param timestamp the end of the test in milliseconds since the epoch, or 0 if unknown
+     * @param enteredWords number of words entered in the test
      * @param accuracyWords accuracy percentage of words
      * @param accuracyLetters accuracy percentage of letters
      * @param wpm words per minute achieved in the test
      * @param duration duration of the test in seconds
      * @param language language used in the test
      */
-    private StatisticsData(double accuracyWords, double accuracyLetters, double wpm, int duration, String language) {
+    private StatisticsData(long timestamp, int enteredWords, double accuracyWords, double accuracyLetters, double wpm, int duration, String language) {
+        this.timestamp = timestamp;
+        this.enteredWords = enteredWords;
         this.accuracyWords = accuracyWords;
         this.accuracyLetters = accuracyLetters;
         this.wpm = wpm;
@@ -29,20 +35,56 @@ public class StatisticsData {
         this.language = language;
     }
 
+    /**
+     * Creates a StatisticsData object from the values of a test.
+     *
+     * @param timestamp the end of the test in milliseconds since the epoch, or 0 if unknown
+     * @param enteredWords number of words entered in the test
+     * @param wpm words per minute achieved in the test
+     * @param accuracyWords accuracy percentage of words
+     * @param accuracyLetters accuracy percentage of letters
+     * @param duration duration of the test in seconds
+     * @param language language used in the test
+     * @return A new instance of StatisticsData containing the given values
+     */
+    public static StatisticsData of(long timestamp, int enteredWords, double wpm, double accuracyWords, double accuracyLetters, int duration, String language) {
+        return new StatisticsData(timestamp, enteredWords, accuracyWords, accuracyLetters, wpm, duration, language);
+    }
+
     /**
      * Parses a line of result data into a StatisticsData object.
+     * The text format does not store when the test was taken, so the timestamp is 0.
      *
      * @param resultLine A string containing the test results in a specific format
      * @return A new instance of StatisticsData containing the parsed values
      */
     public static StatisticsData fromString(String resultLine) {
         String[] parts = resultLine.split(", ");
+        int enteredWords = Integer.parseInt(parts[0].split(": ")[1]);
         double accuracyWords = Double.parseDouble(parts[2].split(": ")[1].replace("%", ""));
         double accuracyLetters = Double.parseDouble(parts[3].split(": ")[1].replace("%", ""));
         double wpm = Double.parseDouble(parts[1].split(": ")[1]);
         int duration = Integer.parseInt(parts[4].split(": ")[1]);
         String language = parts[5].split(": ")[1];
-        return new StatisticsData(accuracyWords, accuracyLetters, wpm, duration, language);
+        return new StatisticsData(0, enteredWords, accuracyWords, accuracyLetters, wpm, duration, language);
+    }
+
+    /**
+     * Returns when the test was taken.
+     *
+     * @return the end of the test in milliseconds since the epoch, or 0 if unknown.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the number of words entered in the test.
+     *
+     * @return the number of entered words.
+     */
+    public int getEnteredWords() {
+        return enteredWords;
     }
 
     /**
@@ -0,0 +1,479 @@
+package typing_speed_test.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Index of the recorded results for queries filtered by language, duration and time range.
+ * The results are split into cells by their language and duration, and every cell keeps a posting list
+ * of its results ordered by time, so a time range is found by a binary search.
+ * Along the posting list the cell keeps prefix sums of WPM and a cumulative histogram of WPM
+ * every {@value #BLOCK} results, so the count, the average and the percentiles of WPM within a range
+ * are computed from at most two partial blocks instead of all results in the range.
+ * <p>
+ * The histogram counts whole words per minute up to {@value #WPM_BUCKETS}, so percentiles
+ * are exact for the whole-number WPM recorded by tests, and faster results count as the fastest bucket.
+ * Results without a timestamp, such as imported ones, match only queries without a time range.
+ * A result recorded earlier than the latest one of its cell, after a change of the clock,
+ * is indexed at the time of the latest one. Rollups of older results are indexed at the start
+ * of their period with the weight of their count and their own histogram.
+ * The index is not thread-safe.
+ */
+public class StatisticsIndex {
+    private static final int BLOCK = 256;
+    static final int WPM_BUCKETS = 256;
+
+    /**
+     * Selection of results by their language, duration and time.
+     */
+    public static class Filter {
+        /** Filter matching all results. */
+        public static final Filter ALL = new Filter(null, 0, Long.MIN_VALUE, Long.MAX_VALUE);
+
+        private final String language;
+        private final int duration;
+        private final long from;
+        private final long to;
+
+        /**
+         * Constructs a new Filter.
+         *
+         * @param language the language of the matching results, or null for any language
+         * @param duration the duration of the matching results in seconds, or 0 for any duration
+         * @param from     the earliest timestamp of the matching results, or Long.MIN_VALUE for no time range
+         * @param to       the timestamp after the latest matching results
+         */
+        public Filter(String language, int duration, long from, long to) {
+            this.language = language;
+            this.duration = duration;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Tells whether a result matches this filter.
+         *
+         * @param language  the language of the result
+         * @param duration  the duration of the result in seconds
+         * @param timestamp the timestamp of the result, 0 if unknown
+         * @return true if the result is selected by this filter
+         */
+        public boolean matches(String language, int duration, long timestamp) {
+            return (this.language == null || this.language.equals(language))
+                    && (this.duration == 0 || this.duration == duration)
+                    && (timestamp == 0 ? matchesUndated() : timestamp >= from && timestamp < to);
+        }
+
+        /**
+         * Tells whether results without a timestamp match this filter.
+         *
+         * @return true if the filter has no time range
+         */
+        private boolean matchesUndated() {
+            return from == Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Aggregates of the WPM of the results matching a filter.
+     */
+    public static class Summary {
+        private final int count;
+        private final double averageWpm;
+        private final int bestWpm;
+        private final int medianWpm;
+        private final int p90Wpm;
+
+        /**
+         * Constructs a new Summary.
+         *
+         * @param count      the number of matching results
+         * @param averageWpm the average WPM
+         * @param bestWpm    the highest WPM
+         * @param medianWpm  the median WPM
+         * @param p90Wpm     the WPM exceeded by a tenth of the results
+         */
+        Summary(int count, double averageWpm, int bestWpm, int medianWpm, int p90Wpm) {
+            this.count = count;
+            this.averageWpm = averageWpm;
+            this.bestWpm = bestWpm;
+            this.medianWpm = medianWpm;
+            this.p90Wpm = p90Wpm;
+        }
+
+        /**
+         * Returns the number of matching results.
+         *
+         * @return the number of results, 0 if none match and the other values are 0
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the average WPM of the matching results.
+         *
+         * @return the average words per minute
+         */
+        public double getAverageWpm() {
+            return averageWpm;
+        }
+
+        /**
+         * Returns the highest WPM of the matching results.
+         *
+         * @return the best whole words per minute
+         */
+        public int getBestWpm() {
+            return bestWpm;
+        }
+
+        /**
+         * Returns the median WPM of the matching results.
+         *
+         * @return the median whole words per minute
+         */
+        public int getMedianWpm() {
+            return medianWpm;
+        }
+
+        /**
+         * Returns the 90th percentile of the WPM of the matching results.
+         *
+         * @return the whole words per minute reached by the fastest tenth of the results
+         */
+        public int getP90Wpm() {
+            return p90Wpm;
+        }
+    }
+
+    /**
+     * Results of one language and duration.
+     */
+    private class Cell {
+        private final int languageId;
+        private final int duration;
+
+        // Posting list of the results with a timestamp, ordered by time
+        private int[] indices = new int[16];
+        private long[] times = new long[16];
+        private byte[] buckets = new byte[16];
+        // wpmSums[i] and counts[i] are the sum of WPM and the number of results of the first i rows of the posting list
+        private double[] wpmSums = new double[17];
+        private long[] counts = new long[17];
+        private int size;
+        // histograms[k] counts the WPM buckets of the first k * BLOCK results of the posting list
+        private int[][] histograms = {new int[WPM_BUCKETS]};
+
+        // Results without a timestamp, in the order of recording
+        private int[] undatedIndices = new int[16];
+        private final int[] undatedHistogram = new int[WPM_BUCKETS];
+        private double undatedWpmSum;
+        private int undatedSize;
+
+        /**
+         * Constructs an empty Cell.
+         *
+         * @param languageId the language id of the results of the cell
+         * @param duration   the duration of the results of the cell
+         */
+        private Cell(int languageId, int duration) {
+            this.languageId = languageId;
+            this.duration = duration;
+        }
+
+        /**
+         * Adds a result or a rollup to the cell.
+         *
+         * @param index     the index of the row
+         * @param timestamp the timestamp of the row, 0 if unknown
+         * @param wpm       the WPM of the result or the average WPM of the rollup
+         * @param count     the number of results of the row
+         */
+        private void add(int index, long timestamp, double wpm, int count) {
+            int bucket = bucket(wpm);
+            if (timestamp == 0) {
+                if (undatedSize == undatedIndices.length) {
+                    undatedIndices = Arrays.copyOf(undatedIndices, undatedSize * 2);
+                }
+                undatedIndices[undatedSize++] = index;
+                undatedHistogram[bucket]++;
+                undatedWpmSum += wpm;
+                return;
+            }
+
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+                times = Arrays.copyOf(times, size * 2);
+                buckets = Arrays.copyOf(buckets, size * 2);
+                wpmSums = Arrays.copyOf(wpmSums, size * 2 + 1);
+                counts = Arrays.copyOf(counts, size * 2 + 1);
+            }
+            indices[size] = index;
+            times[size] = size > 0 ? Math.max(timestamp, times[size - 1]) : timestamp;
+            buckets[size] = (byte) bucket;
+            wpmSums[size + 1] = wpmSums[size] + wpm * count;
+            counts[size + 1] = counts[size] + count;
+            size++;
+
+            if (size % BLOCK == 0) {
+                int[] histogram = histograms[histograms.length - 1].clone();
+                for (int i = size - BLOCK; i < size; i++) {
+                    addRow(histogram, i, 1);
+                }
+                histograms = Arrays.copyOf(histograms, histograms.length + 1);
+                histograms[histograms.length - 1] = histogram;
+            }
+        }
+
+        /**
+         * Returns the position of the first result of the posting list at or after the given time.
+         *
+         * @param time the time in milliseconds since the epoch
+         * @return the position in the posting list
+         */
+        private int position(long time) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (times[middle] < time) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Adds the histogram of the first results of the posting list to a histogram.
+         *
+         * @param histogram the histogram to add to
+         * @param end       the number of first results counted
+         * @param sign      1 to add the counts, -1 to subtract them
+         */
+        private void addPrefix(int[] histogram, int end, int sign) {
+            int block = end / BLOCK;
+            int[] snapshot = histograms[block];
+            for (int b = 0; b < WPM_BUCKETS; b++) {
+                histogram[b] += sign * snapshot[b];
+            }
+            for (int i = block * BLOCK; i < end; i++) {
+                addRow(histogram, i, sign);
+            }
+        }
+
+        /**
+         * Adds the WPM of a row of the posting list to a histogram.
+         *
+         * @param histogram the histogram to add to
+         * @param position  the position of the row in the posting list
+         * @param sign      1 to add the counts, -1 to subtract them
+         */
+        private void addRow(int[] histogram, int position, int sign) {
+            int[] sketch = columns.getSketch(indices[position]);
+            if (sketch == null) {
+                histogram[buckets[position] & 0xFF] += sign;
+                return;
+            }
+            for (int e = 0; e < sketch.length; e += 2) {
+                histogram[sketch[e]] += sign * sketch[e + 1];
+            }
+        }
+    }
+
+    private final StatisticsColumns columns;
+    private final Map<Long, Cell> cells = new HashMap<>();
+    private final List<Cell> cellList = new ArrayList<>();
+    private int indexed;
+
+    /**
+     * Constructs an empty StatisticsIndex of the given results.
+     *
+     * @param columns the indexed results
+     */
+    public StatisticsIndex(StatisticsColumns columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Indexes the results added to the columns since the previous update.
+     */
+    void update() {
+        for (; indexed < columns.size(); indexed++) {
+            int languageId = columns.getLanguageId(indexed);
+            int duration = columns.getDuration(indexed);
+            long key = ((long) languageId << 32) | (duration & 0xFFFFFFFFL);
+            Cell cell = cells.get(key);
+            if (cell == null) {
+                cell = new Cell(languageId, duration);
+                cells.put(key, cell);
+                cellList.add(cell);
+            }
+            cell.add(indexed, columns.getTimestamp(indexed), columns.getWpm(indexed), columns.getCount(indexed));
+        }
+    }
+
+    /**
+     * Removes all results from the index, to be called when the columns are cleared.
+     */
+    void clear() {
+        cells.clear();
+        cellList.clear();
+        indexed = 0;
+    }
+
+    /**
+     * Computes the aggregates of the WPM of the results matching a filter.
+     *
+     * @param filter the selection of results
+     * @return the number, average, best, median and 90th percentile of WPM of the matching results
+     */
+    public Summary summarize(Filter filter) {
+        int[] histogram = new int[WPM_BUCKETS];
+        long count = 0;
+        double wpmSum = 0;
+        for (Cell cell : matchingCells(filter)) {
+            int from = filter.matchesUndated() ? 0 : cell.position(filter.from);
+            int to = cell.position(filter.to);
+            if (from < to) {
+                cell.addPrefix(histogram, to, 1);
+                cell.addPrefix(histogram, from, -1);
+                count += cell.counts[to] - cell.counts[from];
+                wpmSum += cell.wpmSums[to] - cell.wpmSums[from];
+            }
+            if (filter.matchesUndated()) {
+                for (int b = 0; b < WPM_BUCKETS; b++) {
+                    histogram[b] += cell.undatedHistogram[b];
+                }
+                count += cell.undatedSize;
+                wpmSum += cell.undatedWpmSum;
+            }
+        }
+
+        if (count == 0) {
+            return new Summary(0, 0, 0, 0, 0);
+        }
+        int best = WPM_BUCKETS - 1;
+        while (histogram[best] == 0) {
+            best--;
+        }
+        return new Summary((int) count, wpmSum / count, best,
+                percentile(histogram, count, 50), percentile(histogram, count, 90));
+    }
+
+    /**
+     * Returns the indices of the results matching a filter.
+     *
+     * @param filter the selection of results
+     * @return the indices of the matching results in the columns, oldest first
+     */
+    public int[] select(Filter filter) {
+        List<Cell> matching = matchingCells(filter);
+        int[] from = new int[matching.size()];
+        int[] to = new int[matching.size()];
+        int count = 0;
+        for (int c = 0; c < matching.size(); c++) {
+            Cell cell = matching.get(c);
+            from[c] = filter.matchesUndated() ? 0 : cell.position(filter.from);
+            to[c] = Math.max(from[c], cell.position(filter.to));
+            count += to[c] - from[c] + (filter.matchesUndated() ? cell.undatedSize : 0);
+        }
+
+        int[] selected = new int[count];
+        int next = 0;
+        for (int c = 0; c < matching.size(); c++) {
+            Cell cell = matching.get(c);
+            System.arraycopy(cell.indices, from[c], selected, next, to[c] - from[c]);
+            next += to[c] - from[c];
+            if (filter.matchesUndated()) {
+                System.arraycopy(cell.undatedIndices, 0, selected, next, cell.undatedSize);
+                next += cell.undatedSize;
+            }
+        }
+        Arrays.sort(selected);
+        return selected;
+    }
+
+    /**
+     * Returns the languages of the indexed results.
+     *
+     * @return the names of the languages, sorted
+     */
+    public List<String> getLanguages() {
+        TreeSet<String> languages = new TreeSet<>();
+        for (Cell cell : cellList) {
+            languages.add(columns.getLanguageName(cell.languageId));
+        }
+        return new ArrayList<>(languages);
+    }
+
+    /**
+     * Returns the durations of the indexed results.
+     *
+     * @return the durations in seconds, sorted
+     */
+    public List<Integer> getDurations() {
+        TreeSet<Integer> durations = new TreeSet<>();
+        for (Cell cell : cellList) {
+            durations.add(cell.duration);
+        }
+        return new ArrayList<>(durations);
+    }
+
+    /**
+     * Returns the cells of the language and the duration of a filter.
+     *
+     * @param filter the selection of results
+     * @return the matching cells
+     */
+    private List<Cell> matchingCells(Filter filter) {
+        int languageId = filter.language != null ? columns.findLanguageId(filter.language) : -1;
+        if (filter.language != null && languageId < 0) {
+            return List.of();
+        }
+        List<Cell> matching = new ArrayList<>();
+        for (Cell cell : cellList) {
+            if ((languageId < 0 || cell.languageId == languageId)
+                    && (filter.duration == 0 || cell.duration == filter.duration)) {
+                matching.add(cell);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Returns the WPM bucket of a result.
+     *
+     * @param wpm the WPM of the result
+     * @return the whole words per minute, limited to the range of the histogram
+     */
+    static int bucket(double wpm) {
+        return (int) Math.max(0, Math.min(WPM_BUCKETS - 1, Math.floor(wpm)));
+    }
+
+    /**
+     * Finds a percentile in a histogram of WPM.
+     *
+     * @param histogram  the counts of the WPM buckets
+     * @param count      the total of the counts
+     * @param percentile the percentile between 0 and 100
+     * @return the lowest WPM bucket reaching the percentile
+     */
+    private static int percentile(int[] histogram, long count, int percentile) {
+        long rank = Math.max(1, (count * percentile + 99) / 100);
+        long seen = 0;
+        for (int b = 0; b < WPM_BUCKETS; b++) {
+            seen += histogram[b];
+            if (seen >= rank) {
+                return b;
+            }
+        }
+        return WPM_BUCKETS - 1;
+    }
+}
@@ -0,0 +1,84 @@
+package typing_speed_test.data;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Keeps the recorded results in memory in columns, loaded once from the results file.
+ * Every later access reads only the records appended since the previous one, remembered by their file offset.
+ * The whole file is read again only when it has been truncated or its generation has changed,
+ * which happens when results are erased.
+ * The results are indexed for filtered queries as they are read.
+ * Rollups of compacted results are loaded before the results, as one row per bucket.
+ * Each access holds a shared lock of the results file, so records appended by other instances
+ * of the application sharing the file are read only once they are completely written.
+ */
+public class StatisticsRepository {
+    private final ResultsRecorder resultsRecorder;
+    private final StatisticsColumns results = new StatisticsColumns();
+    private final StatisticsIndex index = new StatisticsIndex(results);
+    private long offset = ResultsLog.HEADER_SIZE;
+    private long generation = -1;
+    private long cutoff = Long.MIN_VALUE;
+
+    /**
+     * Constructs a StatisticsRepository of the results recorded by the given recorder.
+     *
+     * @param resultsRecorder the recorder writing the results file
+     */
+    public StatisticsRepository(ResultsRecorder resultsRecorder) {
+        this.resultsRecorder = resultsRecorder;
+    }
+
+    /**
+     * Returns all recorded results, reading the ones appended since the previous call.
+     * The returned columns are the ones kept by this repository and are updated by the next call.
+     *
+     * @return the recorded results, oldest first
+     */
+    public synchronized StatisticsColumns getResults() {
+        resultsRecorder.flush();
+        try (ResultsLock lock = ResultsLock.openShared(resultsRecorder.getResultsPath())) {
+            FileChannel channel = lock.channel();
+            long size = channel.size();
+            long currentGeneration = ResultsLog.readGeneration(channel);
+            if (currentGeneration != generation || size < offset) {
+                results.clear();
+                index.clear();
+                offset = ResultsLog.HEADER_SIZE;
+                generation = currentGeneration;
+                loadRollups();
+            }
+            offset = ResultsLog.readRecords(channel, offset, size, results, cutoff);
+            index.update();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return results;
+    }
+
+    /**
+     * Adds the rollups of compacted results as the first rows of the columns.
+     *
+     * @throws IOException if the rollup file cannot be read
+     */
+    private void loadRollups() throws IOException {
+        ResultsRollups rollups = ResultsRollups.read(resultsRecorder.getRollupsPath());
+        for (ResultsRollups.Bucket bucket : rollups.getBuckets()) {
+            results.addRollup(bucket.getStart(), bucket.getCount(), bucket.getWpmSum(), bucket.getAccuracyWordsSum(),
+                    bucket.getAccuracyLettersSum(), bucket.getEnteredWordsSum(), bucket.getDuration(),
+                    results.languageId(bucket.getLanguage()), bucket.getSketch());
+        }
+        cutoff = rollups.getCutoff();
+    }
+
+    /**
+     * Returns the index of the results returned by the last call of getResults.
+     * The index is the one kept by this repository and is updated by the next call of getResults.
+     *
+     * @return the index of the recorded results
+     */
+    public synchronized StatisticsIndex getIndex() {
+        return index;
+    }
+}
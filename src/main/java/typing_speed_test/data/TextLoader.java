@@ -1,63 +1,165 @@
 package typing_speed_test.data;
 
 import java.io.IOException;
-import java.util.Collections;
-import java.util.List;
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.stream.Collectors;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * TextLoader is responsible for loading and randomizing words from text files based on the language.
- * It provides methods to get text in chunks or the entire text.
+ * It generates the text lazily in chunks and remembers how many words it has emitted,
+ * so the emitted text can be reproduced without keeping it or the rest of the words in memory.
+ * The words themselves are shared with all other loaders of the same language,
+ * each loader only walks them in its own random order or samples them by their weights.
  */
 public class TextLoader {
-    private final List<String> words;
+    private static final int CHUNK_SIZE = 20;
+
+    /**
+     * The way words are picked from the corpus.
+     */
+    public enum Mode {
+        /** Every word once in a random order, then again in the same order. */
+        SHUFFLE,
+        /** Words drawn independently in proportion to their weights. */
+        WEIGHTED
+    }
+
+    private final String language;
+    private final Mode mode;
+    private final Corpus corpus;
+    private final long seed;
+    private final WordPermutation order;
+    private final AliasTable aliasTable;
+    private final SplittableRandom random;
     private int currentIndex = 0;
+    private long emittedCount = 0;
 
     /**
-     * Constructs a TextLoader for the specified language.
-     * Loads words from a file corresponding to the given language and shuffles them.
+     * Constructs a TextLoader for the specified language with a random order of words.
      *
      * @param language the language of the text to load ("English", "Czech", "Russian", "Spanish").
      * @throws IOException if there is an error reading the file or if the language is not supported.
      */
     public TextLoader(String language) throws IOException {
-        InputStream is = getClass().getResourceAsStream("/texts/" + language.toLowerCase() + ".txt");
-        if (is == null) {
-            throw new IOException("Resource not found for language: " + language);
-        }
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
-            words = reader.lines().collect(Collectors.toList());
-        }
+        this(language, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Constructs a TextLoader for the specified language with the order of words given by a seed.
+     *
+     * @param language the language of the text to load ("English", "Czech", "Russian", "Spanish").
+     * @param seed     the seed selecting the order of words
+     * @throws IOException if there is an error reading the file or if the language is not supported.
+     */
+    public TextLoader(String language, long seed) throws IOException {
+        this(language, Mode.SHUFFLE, seed);
+    }
 
-        // Shuffle the words to create a random sequence each time
-        Collections.shuffle(words);
+    /**
+     * Constructs a TextLoader for the specified language picking words in the given mode.
+     *
+     * @param language the language of the text to load ("English", "Czech", "Russian", "Spanish").
+     * @param mode     the way words are picked
+     * @param seed     the seed selecting the order of words
+     * @throws IOException if there is an error reading the file or if the language is not supported.
+     */
+    public TextLoader(String language, Mode mode, long seed) throws IOException {
+        this.language = language;
+        this.mode = mode;
+        this.corpus = Corpora.forLanguage(language);
+        this.seed = seed;
+        if (mode == Mode.WEIGHTED) {
+            order = null;
+            aliasTable = Corpora.aliasTable(language);
+            random = new SplittableRandom(seed);
+        } else {
+            order = new WordPermutation(corpus.size(), seed);
+            aliasTable = null;
+            random = null;
+        }
     }
 
     /**
      * Retrieves the next chunk of words.
-     * If the end of the list is reached, it wraps around to the beginning.
+     * In the shuffle mode, if the end of the list is reached, it wraps around to the beginning.
      *
      * @return a string containing the next chunk of words.
      */
     public String getNext() {
-        if (currentIndex >= words.size()) {
-            currentIndex = 0; // Reset index to loop the words
+        int count;
+        if (order != null) {
+            if (currentIndex >= corpus.size()) {
+                currentIndex = 0; // Reset index to loop the words
+            }
+            count = Math.min(CHUNK_SIZE, corpus.size() - currentIndex);
+        } else {
+            count = corpus.size() > 0 ? CHUNK_SIZE : 0;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            corpus.appendWord(order != null ? order.get(currentIndex++) : aliasTable.sample(random), sb);
         }
-        int endIndex = Math.min(currentIndex + 20, words.size());
-        String result = String.join(" ", words.subList(currentIndex, endIndex));
-        currentIndex = endIndex;
-        return result;
+        emittedCount += count;
+        return sb.toString();
+    }
+
+    /**
+     * Returns all words emitted so far by getNext as a single string.
+     * The words are generated again from the seed of this loader.
+     *
+     * @return a string containing the emitted words joined by spaces
+     */
+    public String getEmittedText() {
+        StringBuilder sb = new StringBuilder();
+        int size = corpus.size();
+        SplittableRandom replay = order != null ? null : new SplittableRandom(seed);
+        for (long i = 0; i < emittedCount; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            corpus.appendWord(order != null ? order.get((int) (i % size)) : aliasTable.sample(replay), sb);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the number of words emitted so far by getNext.
+     *
+     * @return the number of emitted words
+     */
+    public long getEmittedWordCount() {
+        return emittedCount;
+    }
+
+    /**
+     * Returns the language of the loaded text.
+     *
+     * @return the language of this loader
+     */
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * Returns the way words are picked by this loader.
+     *
+     * @return the mode of this loader
+     */
+    public Mode getMode() {
+        return mode;
     }
 
     /**
-     * Returns all words as a single string.
+     * Returns the seed selecting the order of words, which together with the language
+     * and the mode is enough to generate the same text again.
      *
-     * @return a string containing all the words loaded, joined by spaces.
+     * @return the seed of this loader
      */
-    public String getText(){
-        return String.join(" ", words);
+    public long getSeed() {
+        return seed;
     }
 }
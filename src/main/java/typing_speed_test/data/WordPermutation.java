@@ -0,0 +1,85 @@
+package typing_speed_test.data;
+
+import java.util.SplittableRandom;
+
+/**
+ * Seeded pseudo-random permutation of the indices 0 to size - 1.
+ * The permutation is computed on demand by a small Feistel network with cycle walking,
+ * so creating it takes constant time and memory regardless of the number of indices.
+ */
+final class WordPermutation {
+    private static final int ROUNDS = 4;
+
+    private final int size;
+    private final int halfBits;
+    private final int halfMask;
+    private final int[] keys = new int[ROUNDS];
+
+    /**
+     * Constructs a permutation of the given number of indices.
+     *
+     * @param size the number of indices
+     * @param seed the seed selecting the permutation
+     */
+    WordPermutation(int size, long seed) {
+        this.size = size;
+
+        // The network permutes a domain of 2^(2 * halfBits) indices covering the whole size
+        int bits = 2;
+        while (bits < 32 && (1L << bits) < size) {
+            bits += 2;
+        }
+        halfBits = bits / 2;
+        halfMask = (1 << halfBits) - 1;
+
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < ROUNDS; i++) {
+            keys[i] = random.nextInt();
+        }
+    }
+
+    /**
+     * Returns the index at the given position of the permutation.
+     *
+     * @param position a position between 0 and size - 1
+     * @return the permuted index
+     */
+    int get(int position) {
+        int value = position;
+        do {
+            value = encrypt(value);
+        } while (value < 0 || value >= size);
+        return value;
+    }
+
+    /**
+     * Applies the Feistel rounds to a value of the domain.
+     *
+     * @param value the value to permute
+     * @return the permuted value
+     */
+    private int encrypt(int value) {
+        int left = value >>> halfBits;
+        int right = value & halfMask;
+        for (int key : keys) {
+            int next = left ^ (mix(right ^ key) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    /**
+     * Scrambles the bits of a round input.
+     *
+     * @param x the round input
+     * @return the scrambled value
+     */
+    private static int mix(int x) {
+        x *= 0x9E3779B9;
+        x ^= x >>> 16;
+        x *= 0x85EBCA6B;
+        x ^= x >>> 13;
+        return x;
+    }
+}
@@ -0,0 +1,58 @@
+package typing_speed_test.data;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Parser of the weight column of dictionary lines, shared by the corpora on the heap and the mapped ones,
+ * so both give a word the same weight.
+ * A weight is a plain decimal number, digits with an optional fractional part, optionally surrounded by spaces.
+ * Anything else, including signs and exponents, is not a weight and the word counts as 1.
+ */
+final class WordWeights {
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private WordWeights() {
+    }
+
+    /**
+     * Parses the weight column of a line. The column ends at the end of the line or at the next tab.
+     *
+     * @param charAt the character, or the byte for UTF-8 text, at a position of the line
+     * @param from   the position after the tab preceding the column
+     * @param to     the end of the line
+     * @return the weight, or 1 if the column is not a plain decimal number
+     */
+    static double parse(IntUnaryOperator charAt, int from, int to) {
+        int pos = from;
+        while (pos < to && charAt.applyAsInt(pos) == ' ') {
+            pos++;
+        }
+
+        double weight = 0;
+        double scale = 0;
+        boolean digits = false;
+        for (; pos < to; pos++) {
+            int c = charAt.applyAsInt(pos);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+                if (scale == 0) {
+                    weight = weight * 10 + (c - '0');
+                } else {
+                    weight += (c - '0') * scale;
+                    scale /= 10;
+                }
+            } else if (c == '.' && scale == 0) {
+                scale = 0.1;
+            } else {
+                break;
+            }
+        }
+
+        while (pos < to && charAt.applyAsInt(pos) == ' ') {
+            pos++;
+        }
+        return digits && (pos == to || charAt.applyAsInt(pos) == '\t') ? weight : 1;
+    }
+}
@@ -0,0 +1,18 @@
+package typing_speed_test.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning the replacement of the displayed chunk by the next or the previous one.
+ */
+@Name("typing_speed_test.ChunkSwap")
+@Label("Chunk Swap")
+@Category({"Typing Speed Test", "Session"})
+@Description("The displayed chunk of words replaced")
+public class ChunkSwapEvent extends jdk.jfr.Event {
+    @Label("Chunk Length")
+    public int length;
+}
@@ -0,0 +1,24 @@
+package typing_speed_test.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of a key typed into the input area, emitted when the event dispatch thread receives it.
+ */
+@Name("typing_speed_test.KeyReceived")
+@Label("Key Received")
+@Category({"Typing Speed Test", "Input"})
+@Description("A key typed into the input area was dispatched")
+public class KeyReceivedEvent extends jdk.jfr.Event {
+    @Label("Key")
+    public char keyChar;
+
+    @Label("Queue Delay")
+    @Description("Time between the key event being created and dispatched, in millisecond resolution")
+    @Timespan
+    public long queueDelay;
+}
@@ -0,0 +1,116 @@
+package typing_speed_test.diagnostics;
+
+import java.util.Arrays;
+
+/**
+ * Measures the delay of key events in the event queue and the latency from receiving a key
+ * to the next paint of the prompt, keeping the most recent samples of both for rolling percentiles.
+ * All methods are expected to be called on the event dispatch thread.
+ */
+public class LatencyMonitor {
+    private static final int WINDOW = 512;
+    // A key which does not cause a paint within this time did not change the prompt
+    private static final long MAX_LATENCY = 1_000_000_000L;
+
+    private final Window queueDelays = new Window();
+    private final Window paintLatencies = new Window();
+    private long pendingKey = -1;
+
+    /**
+     * Most recent samples of a latency, overwritten in a ring.
+     */
+    private static class Window {
+        private final long[] samples = new long[WINDOW];
+        private final long[] sorted = new long[WINDOW];
+        private int next;
+        private int count;
+
+        /**
+         * Adds a sample, replacing the oldest one if the window is full.
+         *
+         * @param nanos the sample in nanoseconds
+         */
+        void add(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+        }
+
+        /**
+         * Returns a percentile of the samples in the window.
+         *
+         * @param percentile the percentile between 0 and 100
+         * @return the sample at the percentile in nanoseconds, or -1 if there are no samples
+         */
+        long percentile(double percentile) {
+            if (count == 0) {
+                return -1;
+            }
+            System.arraycopy(samples, 0, sorted, 0, count);
+            Arrays.sort(sorted, 0, count);
+            int index = (int) Math.ceil(percentile / 100 * count) - 1;
+            return sorted[Math.max(0, Math.min(index, count - 1))];
+        }
+    }
+
+    /**
+     * Records a key received by the event dispatch thread.
+     *
+     * @param keyChar  the typed character
+     * @param when     the time the key event was created, in milliseconds since the epoch
+     * @param nanoTime the value of System.nanoTime when the key was received
+     */
+    public void keyReceived(char keyChar, long when, long nanoTime) {
+        long queueDelay = Math.max(0, System.currentTimeMillis() - when) * 1_000_000L;
+        queueDelays.add(queueDelay);
+        if (pendingKey < 0 || nanoTime - pendingKey > MAX_LATENCY) {
+            pendingKey = nanoTime;
+        }
+
+        KeyReceivedEvent event = new KeyReceivedEvent();
+        if (event.shouldCommit()) {
+            event.keyChar = keyChar;
+            event.queueDelay = queueDelay;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records a finished paint of the prompt, which displays all keys received before it.
+     *
+     * @param nanoTime the value of System.nanoTime at the end of the paint
+     * @return the latency from the oldest waiting key in nanoseconds, or -1 if no key was waiting
+     */
+    public long painted(long nanoTime) {
+        if (pendingKey < 0) {
+            return -1;
+        }
+        long latency = nanoTime - pendingKey;
+        pendingKey = -1;
+        if (latency > MAX_LATENCY) {
+            return -1;
+        }
+        paintLatencies.add(latency);
+        return latency;
+    }
+
+    /**
+     * Returns a rolling percentile of the latency from receiving a key to painting it.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the latency in nanoseconds, or -1 if no keys were painted yet
+     */
+    public long getPaintLatency(double percentile) {
+        return paintLatencies.percentile(percentile);
+    }
+
+    /**
+     * Returns a rolling percentile of the delay of key events in the event queue.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the delay in nanoseconds, or -1 if no keys were received yet
+     */
+    public long getQueueDelay(double percentile) {
+        return queueDelays.percentile(percentile);
+    }
+}
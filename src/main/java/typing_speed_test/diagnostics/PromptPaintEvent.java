@@ -0,0 +1,21 @@
+package typing_speed_test.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event spanning a paint of the prompt view.
+ */
+@Name("typing_speed_test.PromptPaint")
+@Label("Prompt Paint")
+@Category({"Typing Speed Test", "Rendering"})
+@Description("The prompt view painted")
+public class PromptPaintEvent extends jdk.jfr.Event {
+    @Label("Keystroke Latency")
+    @Description("Time from receiving the oldest unpainted key to the end of this paint, or -1 if no key was waiting")
+    @Timespan
+    public long keystrokeLatency = -1;
+}
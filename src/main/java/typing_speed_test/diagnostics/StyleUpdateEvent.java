@@ -0,0 +1,26 @@
+package typing_speed_test.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event spanning the restyling of the current chunk after a change of the input.
+ */
+@Name("typing_speed_test.StyleUpdate")
+@Label("Style Update")
+@Category({"Typing Speed Test", "Session"})
+@Description("Statuses of the current chunk updated after a change of the input")
+public class StyleUpdateEvent extends jdk.jfr.Event {
+    @Label("From")
+    @Description("First index of the chunk affected by the change")
+    public int from;
+
+    @Label("Changed Characters")
+    public int changed;
+
+    @Label("Runs")
+    @Description("Runs of equal status passed to the view")
+    public int runs;
+}
@@ -0,0 +1,233 @@
+package typing_speed_test.management;
+
+import typing_speed_test.diagnostics.LatencyMonitor;
+import typing_speed_test.diagnostics.PromptPaintEvent;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Lightweight prompt view which paints the chunk of words itself.
+ * The position of every character is laid out once per chunk and component width,
+ * the status of every character is kept in a byte array, and a status change repaints
+ * only the rectangles of the affected characters.
+ */
+public class GlyphPromptView extends JComponent implements PromptView {
+    private static final long serialVersionUID = 1L;
+    // Colors indexed by the character status
+    private static final Color[] STATUS_COLORS = {Color.GRAY, Color.BLACK, Color.RED};
+    private static final int PADDING = 5;
+
+    private char[] chars = new char[0];
+    private byte[] status = new byte[0];
+
+    // Cached layout, valid for the current chunk and layoutWidth
+    private int layoutWidth = -1;
+    private int[] charX = new int[0];
+    private int[] charLine = new int[0];
+    private int[] lineStarts = new int[1];
+    private int lineCount;
+    private FontMetrics metrics;
+    private int lineHeight;
+    private int ascent;
+    private LatencyMonitor latencyMonitor;
+
+    /**
+     * Constructs an empty GlyphPromptView.
+     */
+    public GlyphPromptView() {
+        setFont(new Font("SansSerif", Font.PLAIN, 25));
+        setBackground(Color.WHITE);
+        setOpaque(true);
+        setPreferredSize(new Dimension(800, 200));
+    }
+
+    /**
+     * Displays a new chunk of words with all characters untyped.
+     *
+     * @param text the chunk of words to display
+     */
+    @Override
+    public void showText(String text) {
+        chars = text.toCharArray();
+        status = new byte[chars.length];
+        layoutWidth = -1;
+        repaint();
+    }
+
+    /**
+     * Changes the status of the given runs and repaints only the characters they cover.
+     *
+     * @param starts   the start offsets of the runs
+     * @param lengths  the lengths of the runs
+     * @param statuses the new status of each run
+     * @param count    the number of runs
+     */
+    @Override
+    public void setStatus(int[] starts, int[] lengths, byte[] statuses, int count) {
+        ensureLayout();
+        for (int i = 0; i < count; i++) {
+            int end = Math.min(starts[i] + lengths[i], chars.length);
+            for (int j = starts[i]; j < end; j++) {
+                status[j] = statuses[i];
+            }
+            repaintChars(starts[i], end);
+        }
+    }
+
+    /**
+     * Returns this component.
+     *
+     * @return this component
+     */
+    @Override
+    public JComponent getComponent() {
+        return this;
+    }
+
+    /**
+     * Sets the monitor told about every finished paint of the prompt.
+     *
+     * @param latencyMonitor the monitor measuring the latency of keystrokes, or null
+     */
+    @Override
+    public void setLatencyMonitor(LatencyMonitor latencyMonitor) {
+        this.latencyMonitor = latencyMonitor;
+    }
+
+    /**
+     * Requests a repaint of the rectangles occupied by a range of characters.
+     *
+     * @param from the first character of the range
+     * @param to   the index after the last character of the range
+     */
+    private void repaintChars(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int firstLine = charLine[from];
+        int lastLine = charLine[to - 1];
+        int y = PADDING + firstLine * lineHeight;
+        if (firstLine == lastLine) {
+            int x = charX[from];
+            int width = charX[to - 1] + charWidth(to - 1) - x;
+            repaint(x, y, width, lineHeight);
+        } else {
+            repaint(0, y, getWidth(), (lastLine - firstLine + 1) * lineHeight);
+        }
+    }
+
+    /**
+     * Lays out the characters of the chunk into centered lines, wrapping at spaces.
+     * The layout is computed again only when the chunk or the width of the component changes.
+     */
+    private void ensureLayout() {
+        int width = getWidth() > 0 ? getWidth() : getPreferredSize().width;
+        if (width == layoutWidth) {
+            return;
+        }
+        layoutWidth = width;
+
+        metrics = getFontMetrics(getFont());
+        lineHeight = metrics.getHeight();
+        ascent = metrics.getAscent();
+        if (charX.length < chars.length) {
+            charX = new int[chars.length];
+            charLine = new int[chars.length];
+        }
+        if (lineStarts.length < chars.length + 1) {
+            lineStarts = new int[chars.length + 1];
+        }
+
+        int available = Math.max(1, width - 2 * PADDING);
+        lineCount = 0;
+        int lineStart = 0;
+        while (lineStart < chars.length) {
+            // Take as many words as fit on the line, but always at least one
+            int lineEnd = lineStart;
+            int lineWidth = 0;
+            int pos = lineStart;
+            while (pos < chars.length) {
+                int wordEnd = pos;
+                int wordWidth = 0;
+                while (wordEnd < chars.length && chars[wordEnd] != ' ') {
+                    wordWidth += metrics.charWidth(chars[wordEnd++]);
+                }
+                int candidate = lineWidth + (pos > lineStart ? metrics.charWidth(' ') : 0) + wordWidth;
+                if (candidate > available && lineEnd > lineStart) {
+                    break;
+                }
+                lineWidth = candidate;
+                lineEnd = wordEnd;
+                pos = wordEnd + 1;
+            }
+
+            // Center the line, the trailing space is not part of its width
+            int x = (width - lineWidth) / 2;
+            int next = Math.min(lineEnd + 1, chars.length);
+            for (int i = lineStart; i < next; i++) {
+                charX[i] = x;
+                charLine[i] = lineCount;
+                x += metrics.charWidth(chars[i]);
+            }
+            lineStarts[lineCount++] = lineStart;
+            lineStart = next;
+        }
+        lineStarts[lineCount] = chars.length;
+    }
+
+    /**
+     * Returns the width of a single character of the chunk.
+     *
+     * @param index the index of the character
+     * @return the advance of the character in pixels
+     */
+    private int charWidth(int index) {
+        return metrics.charWidth(chars[index]);
+    }
+
+    /**
+     * Paints the lines intersecting the clip, one drawChars call per run of equal status.
+     *
+     * @param g the graphics context
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        PromptPaintEvent event = new PromptPaintEvent();
+        event.begin();
+        ensureLayout();
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setFont(getFont());
+
+        int firstLine = Math.max(0, (clip.y - PADDING) / lineHeight);
+        int lastLine = Math.min(lineCount - 1, (clip.y + clip.height - PADDING) / lineHeight);
+        for (int line = firstLine; line <= lastLine; line++) {
+            int baseline = PADDING + line * lineHeight + ascent;
+            int end = lineStarts[line + 1];
+            int runStart = lineStarts[line];
+            while (runStart < end) {
+                int runEnd = runStart + 1;
+                while (runEnd < end && status[runEnd] == status[runStart]) {
+                    runEnd++;
+                }
+                g2.setColor(STATUS_COLORS[status[runStart]]);
+                g2.drawChars(chars, runStart, runEnd - runStart, charX[runStart], baseline);
+                runStart = runEnd;
+            }
+        }
+
+        event.end();
+        if (latencyMonitor != null) {
+            event.keystrokeLatency = latencyMonitor.painted(System.nanoTime());
+        }
+        event.commit();
+    }
+}
@@ -0,0 +1,85 @@
+package typing_speed_test.management;
+
+import typing_speed_test.session.InputText;
+import typing_speed_test.session.TypingSession;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+/**
+ * Tracks the user's input through document events and forwards every change to a typing session,
+ * stamped with the time it was received.
+ */
+public class InputTracker implements DocumentListener, InputText {
+    private final TypingSession session;
+    private final Document document;
+
+    /**
+     * Constructs an InputTracker and registers it with the given document.
+     *
+     * @param session  the session driven by the input
+     * @param document the document of the input area
+     */
+    public InputTracker(TypingSession session, Document document) {
+        this.session = session;
+        this.document = document;
+        document.addDocumentListener(this);
+    }
+
+    /**
+     * Handles text inserted into the input, whether typed, auto-repeated or pasted.
+     *
+     * @param e the document event describing the insertion
+     */
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        session.inserted(e.getOffset(), e.getLength(), System.nanoTime());
+    }
+
+    /**
+     * Handles text removed from the input, including backspace across a chunk boundary.
+     *
+     * @param e the document event describing the removal
+     */
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        session.removed(e.getOffset(), e.getLength(), System.nanoTime());
+    }
+
+    /**
+     * Ignores attribute changes, which do not affect the typed text.
+     *
+     * @param e the document event
+     */
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+    }
+
+    /**
+     * Returns the length of the text in the input area.
+     *
+     * @return the number of characters typed
+     */
+    @Override
+    public int length() {
+        return document.getLength();
+    }
+
+    /**
+     * Reads a span of text from the input area.
+     *
+     * @param offset the start of the span
+     * @param length the length of the span
+     * @return the text of the span
+     */
+    @Override
+    public String read(int offset, int length) {
+        try {
+            return document.getText(offset, length);
+        } catch (BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
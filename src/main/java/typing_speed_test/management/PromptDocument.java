@@ -0,0 +1,108 @@
+package typing_speed_test.management;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.Element;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Styled document for the text to be typed which can restyle several runs of characters at once.
+ * All runs are changed under a single write lock by a single element edit and reported by a single
+ * document event, so the text pane is updated and repainted only once per batch.
+ * Adjacent leaves which end up with equal attributes are merged, so restyling does not fragment the paragraph.
+ */
+public class PromptDocument extends DefaultStyledDocument {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Sets the character attributes of several runs of characters in one document update.
+     * The runs must be ordered by their start offsets and must not overlap.
+     * The given attributes are added to the existing ones of each run.
+     *
+     * @param starts     the start offsets of the runs
+     * @param lengths    the lengths of the runs
+     * @param attributes the attributes to apply to each run
+     * @param count      the number of runs
+     */
+    public void setCharacterAttributes(int[] starts, int[] lengths, AttributeSet[] attributes, int count) {
+        if (count == 0) {
+            return;
+        }
+        int start = starts[0];
+        int end = Math.min(starts[count - 1] + lengths[count - 1], getLength());
+        if (end <= start) {
+            return;
+        }
+
+        Element paragraph = getParagraphElement(start);
+        if (paragraph.getEndOffset() < end) {
+            // The prompt is a single paragraph, anything else is restyled run by run
+            for (int i = 0; i < count; i++) {
+                setCharacterAttributes(starts[i], lengths[i], attributes[i], false);
+            }
+            return;
+        }
+
+        try {
+            writeLock();
+            AttributeContext context = getAttributeContext();
+            // The neighbouring leaves are rebuilt as well, so they can be merged with equally styled runs
+            int first = Math.max(0, paragraph.getElementIndex(start) - 1);
+            int last = Math.min(paragraph.getElementCount() - 1, paragraph.getElementIndex(end - 1) + 1);
+            Element[] removed = new Element[last - first + 1];
+            List<Element> added = new ArrayList<>(removed.length + 2 * count);
+
+            // Rebuild the affected leaves, splitting them at the boundaries of the runs
+            // and merging adjacent segments with equal attributes into one leaf
+            int run = 0;
+            int pendingStart = -1;
+            int pendingEnd = -1;
+            AttributeSet pendingAttr = null;
+            for (int k = 0; k < removed.length; k++) {
+                Element leaf = paragraph.getElement(first + k);
+                removed[k] = leaf;
+                int pos = leaf.getStartOffset();
+                int leafEnd = leaf.getEndOffset();
+                while (pos < leafEnd) {
+                    while (run < count && starts[run] + lengths[run] <= pos) {
+                        run++;
+                    }
+                    int segmentEnd;
+                    AttributeSet segmentAttr;
+                    if (run < count && starts[run] <= pos) {
+                        segmentEnd = Math.min(leafEnd, starts[run] + lengths[run]);
+                        // The context shares immutable sets, so equal styles are one instance
+                        segmentAttr = context.addAttributes(leaf.getAttributes(), attributes[run]);
+                    } else {
+                        segmentEnd = run < count ? Math.min(leafEnd, starts[run]) : leafEnd;
+                        segmentAttr = leaf.getAttributes();
+                    }
+                    if (pendingAttr != null && pendingAttr.isEqual(segmentAttr)) {
+                        pendingEnd = segmentEnd;
+                    } else {
+                        if (pendingAttr != null) {
+                            added.add(createLeafElement(paragraph, pendingAttr, pendingStart, pendingEnd));
+                        }
+                        pendingStart = pos;
+                        pendingEnd = segmentEnd;
+                        pendingAttr = segmentAttr;
+                    }
+                    pos = segmentEnd;
+                }
+            }
+            added.add(createLeafElement(paragraph, pendingAttr, pendingStart, pendingEnd));
+
+            Element[] addedElements = added.toArray(new Element[0]);
+            ((BranchElement) paragraph).replace(first, removed.length, addedElements);
+
+            DefaultDocumentEvent changes = new DefaultDocumentEvent(start, end - start, DocumentEvent.EventType.CHANGE);
+            changes.addEdit(new ElementEdit(paragraph, first, removed, addedElements));
+            changes.end();
+            fireChangedUpdate(changes);
+        } finally {
+            writeUnlock();
+        }
+    }
+}
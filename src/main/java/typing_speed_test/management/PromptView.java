@@ -0,0 +1,26 @@
+package typing_speed_test.management;
+
+import typing_speed_test.diagnostics.LatencyMonitor;
+import typing_speed_test.session.ChunkView;
+
+import javax.swing.*;
+
+/**
+ * Swing component displaying the chunk of words the user is supposed to type.
+ */
+public interface PromptView extends ChunkView {
+
+    /**
+     * Returns the Swing component to be placed in the user interface.
+     *
+     * @return the component displaying the prompt
+     */
+    JComponent getComponent();
+
+    /**
+     * Sets the monitor told about every finished paint of the prompt.
+     *
+     * @param latencyMonitor the monitor measuring the latency of keystrokes, or null
+     */
+    void setLatencyMonitor(LatencyMonitor latencyMonitor);
+}
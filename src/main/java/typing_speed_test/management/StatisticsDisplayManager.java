@@ -1,53 +1,77 @@
 package typing_speed_test.management;
 
 import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntToDoubleFunction;
 
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.data.category.DefaultCategoryDataset;
 import org.jfree.data.general.DefaultPieDataset;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+import typing_speed_test.analytics.BigramLatencyStats;
+import typing_speed_test.analytics.SeriesDownsampler;
+import typing_speed_test.data.BigramLatencyStore;
+import typing_speed_test.data.ResultsListener;
 import typing_speed_test.data.ResultsRecorder;
+import typing_speed_test.data.StatisticsColumns;
 import typing_speed_test.data.StatisticsData;
+import typing_speed_test.data.StatisticsIndex;
+import typing_speed_test.data.StatisticsRepository;
 
 /**
  * Class to  the display of statistical data from typing tests.
  */
 public class StatisticsDisplayManager {
+    // Number of attempts averaged by the rolling average of the WPM chart
+    private static final int ROLLING_WINDOW = 10;
+    private static final String ANY = "All";
+    private static final String[] PERIODS = {"All Time", "Last 7 Days", "Last 30 Days", "Last 365 Days"};
+    private static final int[] PERIOD_DAYS = {0, 7, 30, 365};
+
     private final JFrame frame;
     private final ResultsRecorder resultsRecorder;
+    private final StatisticsRepository statisticsRepository;
+    private final BigramLatencyStore bigramLatencyStore;
 
     /**
      * Constructs a new StatisticsDisplayManager with a given main application frame and instance of ResultsRecorder.
      * @param frame the main application window
      * @param resultsRecorder the results recorder handling the statistical data
+     * @param bigramLatencyStore the store of the bigram latency histograms
      */
-    public StatisticsDisplayManager(JFrame frame, ResultsRecorder resultsRecorder) {
+    public StatisticsDisplayManager(JFrame frame, ResultsRecorder resultsRecorder, BigramLatencyStore bigramLatencyStore) {
         this.frame = frame;
         this.resultsRecorder = resultsRecorder;
+        this.statisticsRepository = new StatisticsRepository(resultsRecorder);
+        this.bigramLatencyStore = bigramLatencyStore;
     }
 
-    /**
-     * Parses results from the data recorder and converts them into a list of StatisticsData objects.
-     * @return a list of StatisticsData objects
-     */
-    private List<StatisticsData> parseResults() {
-        List<String> results = resultsRecorder.readResults();
-        return results.stream()
-                .map(StatisticsData::fromString)
-                .collect(Collectors.toList());
-    }
 
     /**
      * Displays statistics in a new dialog with tabs for different charts.
+     * The dialog is shown at once and the charts are built by a background worker, each replacing
+     * its placeholder as soon as it is ready, so a long history of results never blocks the application.
+     * The charts and the summary above them show the results selected by the filter controls
+     * and are updated with every result recorded while the dialog is open.
      */
     public void displayStatistics() {
         JDialog statisticsDialog = new JDialog(frame, "Statistics", false);
@@ -55,43 +79,712 @@ public class StatisticsDisplayManager {
 
         JTabbedPane tabbedPane = new JTabbedPane();
 
-        tabbedPane.add("WPM Chart", createWPMChartPanel());
-        tabbedPane.add("Accuracy Chart", createAccuracyChartPanel());
-        tabbedPane.add("Duration Distribution", createDurationPieChartPanel());
+        tabbedPane.add("WPM Chart", createPlaceholder("Loading..."));
+        tabbedPane.add("Accuracy Chart", createPlaceholder("Loading..."));
+        tabbedPane.add("Duration Distribution", createPlaceholder("Loading..."));
+        tabbedPane.add("Bigram Latency", createBigramLatencyPanel());
 
         JPanel buttonPanel = new JPanel();
         JButton eraseButton = new JButton("Erase Statistics");
         eraseButton.addActionListener(this::eraseStatistics);
         buttonPanel.add(eraseButton);
+        JButton exportButton = new JButton("Export as Text");
+        exportButton.addActionListener(e -> exportStatistics(statisticsDialog));
+        buttonPanel.add(exportButton);
+        JButton importButton = new JButton("Import from Text");
+        importButton.addActionListener(e -> importStatistics(statisticsDialog));
+        buttonPanel.add(importButton);
 
+        FilterPanel filterPanel = new FilterPanel(tabbedPane);
+        statisticsDialog.add(filterPanel, BorderLayout.NORTH);
         statisticsDialog.add(tabbedPane, BorderLayout.CENTER);
         statisticsDialog.add(buttonPanel, BorderLayout.SOUTH);
 
-        statisticsDialog.setSize(600, 400);
+        // The dialog follows the recorded results until it is closed
+        resultsRecorder.addResultsListener(filterPanel);
+        statisticsDialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        statisticsDialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                resultsRecorder.removeResultsListener(filterPanel);
+            }
+        });
+
+        statisticsDialog.setSize(600, 450);
         statisticsDialog.setLocationRelativeTo(frame);
         statisticsDialog.setVisible(true);
+
+        filterPanel.reload();
+    }
+
+    /**
+     * Controls selecting the language, the duration and the period of the displayed results,
+     * with a summary of the WPM of the selected results.
+     * Every change of the selection builds the charts again with a new chart worker.
+     * Results recorded while the dialog is open are appended to the charts in batches, one chart
+     * change event per batch, and an erasure empties them.
+     */
+    private class FilterPanel extends JPanel implements ResultsListener {
+        private static final long serialVersionUID = 1L;
+        private final JTabbedPane tabbedPane;
+        private final JComboBox<String> languageBox = new JComboBox<>(new String[]{ANY});
+        private final JComboBox<String> durationBox = new JComboBox<>(new String[]{ANY});
+        private final JComboBox<String> periodBox = new JComboBox<>(PERIODS);
+        private final JLabel summaryLabel = new JLabel(" ", SwingConstants.CENTER);
+        private ChartWorker worker;
+        private LiveDatasets datasets;
+        private StatisticsIndex.Filter filter;
+        private boolean reloadPending;
+
+        // Changes waiting for the event dispatch thread, guarded by pending
+        private final List<StatisticsData> pending = new ArrayList<>();
+        private boolean erasePending;
+        private boolean updateScheduled;
+
+        /**
+         * Constructs a FilterPanel for the charts in the given tabs.
+         * @param tabbedPane the tabs of the statistics dialog
+         */
+        private FilterPanel(JTabbedPane tabbedPane) {
+            super(new BorderLayout());
+            this.tabbedPane = tabbedPane;
+
+            JPanel controls = new JPanel();
+            controls.add(new JLabel("Language:"));
+            controls.add(languageBox);
+            controls.add(new JLabel("Duration:"));
+            controls.add(durationBox);
+            controls.add(new JLabel("Period:"));
+            controls.add(periodBox);
+            add(controls, BorderLayout.CENTER);
+            add(summaryLabel, BorderLayout.SOUTH);
+
+            languageBox.addActionListener(e -> reload());
+            durationBox.addActionListener(e -> reload());
+            periodBox.addActionListener(e -> reload());
+        }
+
+        /**
+         * Builds the charts and the summary of the selected results, abandoning the previous chart worker.
+         */
+        private void reload() {
+            if (worker != null) {
+                worker.cancel(false);
+            }
+            for (int tab = 0; tab < 3; tab++) {
+                tabbedPane.setComponentAt(tab, createPlaceholder("Loading..."));
+            }
+            summaryLabel.setText("Loading...");
+            datasets = null;
+            reloadPending = false;
+            filter = getFilter();
+            worker = new ChartWorker(this, filter, Math.max(getWidth(), 3));
+            worker.execute();
+        }
+
+        /**
+         * Queues a recorded result to be appended to the charts.
+         * @param data the recorded result
+         */
+        @Override
+        public void resultRecorded(StatisticsData data) {
+            synchronized (pending) {
+                pending.add(data);
+                scheduleUpdate();
+            }
+        }
+
+        /**
+         * Queues imported results to be appended to the charts with a single update.
+         * @param results the imported results
+         */
+        @Override
+        public void resultsRecorded(List<StatisticsData> results) {
+            synchronized (pending) {
+                pending.addAll(results);
+                scheduleUpdate();
+            }
+        }
+
+        /**
+         * Queues the erasure of the charts.
+         */
+        @Override
+        public void resultsErased() {
+            synchronized (pending) {
+                pending.clear();
+                erasePending = true;
+                scheduleUpdate();
+            }
+        }
+
+        /**
+         * Schedules a single update of the charts for all changes queued until it runs.
+         */
+        private void scheduleUpdate() {
+            if (!updateScheduled) {
+                updateScheduled = true;
+                SwingUtilities.invokeLater(this::applyUpdates);
+            }
+        }
+
+        /**
+         * Applies the queued changes to the charts and refreshes the summary.
+         * While the charts are being built, the changes may or may not be read by the chart worker,
+         * so the charts are built again once it is done.
+         */
+        private void applyUpdates() {
+            List<StatisticsData> recorded;
+            boolean erased;
+            synchronized (pending) {
+                recorded = new ArrayList<>(pending);
+                erased = erasePending;
+                pending.clear();
+                erasePending = false;
+                updateScheduled = false;
+            }
+
+            if (!worker.isDone()) {
+                reloadPending = true;
+                return;
+            }
+            if (erased && datasets != null) {
+                datasets.clear();
+            }
+            for (StatisticsData data : recorded) {
+                if (!filter.matches(data.getLanguage(), data.getDuration(), data.getTimestamp())) {
+                    continue;
+                }
+                if (datasets == null) {
+                    // There was nothing to chart, so the charts are created from scratch
+                    reload();
+                    return;
+                }
+                datasets.append(data);
+            }
+            if (datasets != null) {
+                datasets.fireChanged();
+            }
+            new SummaryWorker(this, filter).execute();
+        }
+
+        /**
+         * Returns the filter of the selected results.
+         * @return the filter given by the controls
+         */
+        private StatisticsIndex.Filter getFilter() {
+            String language = (String) languageBox.getSelectedItem();
+            String duration = (String) durationBox.getSelectedItem();
+            int days = PERIOD_DAYS[periodBox.getSelectedIndex()];
+            return new StatisticsIndex.Filter(
+                    ANY.equals(language) ? null : language,
+                    ANY.equals(duration) ? 0 : Integer.parseInt(duration.substring(0, duration.length() - 1)),
+                    days == 0 ? Long.MIN_VALUE : System.currentTimeMillis() - days * 86_400_000L,
+                    Long.MAX_VALUE);
+        }
+
+        /**
+         * Adds the languages and durations of newly recorded results to the controls.
+         * @param languages the languages of all results
+         * @param durations the durations of all results
+         */
+        private void showOptions(List<String> languages, List<Integer> durations) {
+            for (String language : languages) {
+                if (((DefaultComboBoxModel<String>) languageBox.getModel()).getIndexOf(language) < 0) {
+                    languageBox.addItem(language);
+                }
+            }
+            for (Integer duration : durations) {
+                if (((DefaultComboBoxModel<String>) durationBox.getModel()).getIndexOf(duration + "s") < 0) {
+                    durationBox.addItem(duration + "s");
+                }
+            }
+        }
+
+        /**
+         * Shows the summary of the selected results.
+         * @param summary the aggregates of the WPM of the selected results
+         */
+        private void showSummary(StatisticsIndex.Summary summary) {
+            if (summary.getCount() == 0) {
+                summaryLabel.setText("No attempts match the filter.");
+                return;
+            }
+            summaryLabel.setText(String.format("Attempts: %d, Average WPM: %.1f, Best: %d, Median: %d, 90th percentile: %d",
+                    summary.getCount(), summary.getAverageWpm(), summary.getBestWpm(),
+                    summary.getMedianWpm(), summary.getP90Wpm()));
+        }
+    }
+
+    /**
+     * Datasets of the charts of the selected results, kept to append newly recorded results to them.
+     * The WPM and accuracy series start with the downsampled history, every appended result adds one point.
+     */
+    private static class LiveDatasets {
+        private final XYSeries wpm = new XYSeries("WPM", false, true);
+        private final XYSeries average = new XYSeries("WPM (Average of " + ROLLING_WINDOW + ")", false, true);
+        private final XYSeries accuracyWords = new XYSeries("Accuracy Over Words", false, true);
+        private final XYSeries accuracyLetters = new XYSeries("Accuracy Over Letters", false, true);
+        private final DefaultPieDataset<String> durations = new DefaultPieDataset<>();
+        // The WPM of the last results, for the rolling average of appended ones
+        private final double[] recentWpm = new double[ROLLING_WINDOW];
+        private int attempts;
+
+        /**
+         * Constructs the datasets of the selected results.
+         * @param statisticsData the recorded results
+         * @param selected the indices of the displayed results
+         * @param width the maximum number of points of a series
+         */
+        private LiveDatasets(StatisticsColumns statisticsData, int[] selected, int width) {
+            int count = selected.length;
+            IntToDoubleFunction wpmValues = i -> statisticsData.getWpm(selected[i]);
+            double[] averages = SeriesDownsampler.rollingAverage(wpmValues, count, ROLLING_WINDOW);
+            addAll(wpm, SeriesDownsampler.downsample(wpmValues, count, width));
+            addAll(average, SeriesDownsampler.downsample(i -> averages[i], count, width));
+            addAll(accuracyWords, SeriesDownsampler.downsample(
+                    i -> statisticsData.value(StatisticsColumns.Column.ACCURACY_WORDS, selected[i]), count, width));
+            addAll(accuracyLetters, SeriesDownsampler.downsample(
+                    i -> statisticsData.value(StatisticsColumns.Column.ACCURACY_LETTERS, selected[i]), count, width));
+            for (int i = Math.max(0, count - ROLLING_WINDOW); i < count; i++) {
+                recentWpm[i % ROLLING_WINDOW] = wpmValues.applyAsDouble(i);
+            }
+            attempts = count;
+
+            // Count frequencies of each duration
+            Map<Integer, Integer> durationCounts = new TreeMap<>();
+            for (int index : selected) {
+                durationCounts.merge(statisticsData.getDuration(index), statisticsData.getCount(index), Integer::sum);
+            }
+
+            // Add data to the dataset
+            for (Map.Entry<Integer, Integer> entry : durationCounts.entrySet()) {
+                durations.setValue(entry.getKey() + "s", entry.getValue());
+            }
+        }
+
+        /**
+         * Adds the points of a series without notifying anyone.
+         * @param series the series to add to
+         * @param points the x values and the y values of the points
+         */
+        private static void addAll(XYSeries series, double[][] points) {
+            for (int i = 0; i < points[0].length; i++) {
+                series.add(points[0][i], points[1][i], false);
+            }
+        }
+
+        /**
+         * Tells whether there are no results to chart.
+         * @return true if no results are selected
+         */
+        private boolean isEmpty() {
+            return attempts == 0;
+        }
+
+        /**
+         * Appends a recorded result to all datasets without notifying the charts.
+         * @param data the recorded result
+         */
+        private void append(StatisticsData data) {
+            recentWpm[attempts % ROLLING_WINDOW] = data.getWpm();
+            attempts++;
+            double sum = 0;
+            int window = Math.min(attempts, ROLLING_WINDOW);
+            for (int i = 0; i < window; i++) {
+                sum += recentWpm[i];
+            }
+            wpm.add(attempts, data.getWpm(), false);
+            average.add(attempts, sum / window, false);
+            accuracyWords.add(attempts, data.getAccuracyWords(), false);
+            accuracyLetters.add(attempts, data.getAccuracyLetters(), false);
+
+            durations.setNotify(false);
+            String key = data.getDuration() + "s";
+            int index = durations.getIndex(key);
+            durations.setValue(key, index < 0 ? 1 : durations.getValue(index).intValue() + 1);
+        }
+
+        /**
+         * Notifies the charts of all changes since the previous notification, once per dataset.
+         */
+        private void fireChanged() {
+            wpm.fireSeriesChanged();
+            average.fireSeriesChanged();
+            accuracyWords.fireSeriesChanged();
+            accuracyLetters.fireSeriesChanged();
+            durations.setNotify(true);
+        }
+
+        /**
+         * Removes all results from the datasets.
+         */
+        private void clear() {
+            wpm.clear();
+            average.clear();
+            accuracyWords.clear();
+            accuracyLetters.clear();
+            durations.clear();
+            attempts = 0;
+        }
+    }
+
+    /**
+     * Chart of a tab of the statistics dialog, built by the chart worker.
+     */
+    private static class BuiltChart {
+        private final int tab;
+        private final JFreeChart chart;
+
+        /**
+         * Constructs a BuiltChart for the given tab.
+         * @param tab the index of the tab showing the chart
+         * @param chart the chart, or null if there is no data for it
+         */
+        private BuiltChart(int tab, JFreeChart chart) {
+            this.tab = tab;
+            this.chart = chart;
+        }
     }
 
     /**
-     * Creates a chart panel displaying WPM (Words Per Minute) statistics over time.
-     * @return a ChartPanel containing the WPM chart
+     * Background worker reading the recorded results and building the charts of the selected ones one after another.
+     * Every chart gets its own series of at most as many points as the dialog is wide,
+     * so the charts never read the result columns, which may grow while they are painted.
+     * A cancelled worker no longer changes the dialog.
      */
-    private ChartPanel createWPMChartPanel() {
-        List<StatisticsData> statisticsData = parseResults();
-        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        int index = 1;
+    private class ChartWorker extends SwingWorker<Void, BuiltChart> {
+        private final FilterPanel filterPanel;
+        private final StatisticsIndex.Filter filter;
+        private final int width;
+        private LiveDatasets datasets;
+        private StatisticsIndex.Summary summary;
+        private List<String> languages;
+        private List<Integer> durations;
 
-        if (statisticsData.isEmpty()) {
-            System.out.println("No wpm data available.");
+        /**
+         * Constructs a ChartWorker filling the tabs of the given filter panel.
+         * @param filterPanel the filter controls of the statistics dialog
+         * @param filter the selection of the displayed results
+         * @param width the width of the charts in pixels, the maximum number of points of a series
+         */
+        private ChartWorker(FilterPanel filterPanel, StatisticsIndex.Filter filter, int width) {
+            this.filterPanel = filterPanel;
+            this.filter = filter;
+            this.width = width;
+        }
+
+        /**
+         * Reads the results and builds the charts, publishing each as soon as it is built.
+         * @return nothing
+         */
+        @Override
+        protected Void doInBackground() {
+            // The columns are only appended to by the repository, which is locked while reading them
+            synchronized (statisticsRepository) {
+                // The results are read once for all charts, and only the ones recorded since the last time
+                StatisticsColumns statisticsData = statisticsRepository.getResults();
+                StatisticsIndex index = statisticsRepository.getIndex();
+                datasets = new LiveDatasets(statisticsData, index.select(filter), width);
+                summary = index.summarize(filter);
+                languages = index.getLanguages();
+                durations = index.getDurations();
+            }
+            publish(new BuiltChart(0, createWPMChart(datasets)));
+            publish(new BuiltChart(1, createAccuracyChart(datasets)));
+            publish(new BuiltChart(2, createDurationPieChart(datasets)));
             return null;
         }
 
-        for (StatisticsData data : statisticsData) {
-            dataset.addValue(data.getWpm(), "WPM", String.valueOf(index));
-            index++;
+        /**
+         * Replaces the placeholders of the built charts by the charts.
+         * @param charts the charts built since the previous call
+         */
+        @Override
+        protected void process(List<BuiltChart> charts) {
+            if (isCancelled()) {
+                return;
+            }
+            for (BuiltChart built : charts) {
+                filterPanel.tabbedPane.setComponentAt(built.tab, built.chart != null
+                        ? new ChartPanel(built.chart)
+                        : createPlaceholder("No data available."));
+            }
+        }
+
+        /**
+         * Shows the summary of the selected results and reports an error of building the charts.
+         * If results were recorded meanwhile, the charts are built again.
+         */
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                get();
+                filterPanel.datasets = datasets.isEmpty() ? null : datasets;
+                filterPanel.showOptions(languages, durations);
+                filterPanel.showSummary(summary);
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+            if (filterPanel.reloadPending) {
+                filterPanel.reload();
+            }
         }
+    }
+
+    /**
+     * Background worker refreshing the summary and the filter options after results were recorded.
+     */
+    private class SummaryWorker extends SwingWorker<StatisticsIndex.Summary, Void> {
+        private final FilterPanel filterPanel;
+        private final StatisticsIndex.Filter filter;
+        private List<String> languages;
+        private List<Integer> durations;
 
-        JFreeChart chart = ChartFactory.createLineChart(
+        /**
+         * Constructs a SummaryWorker for the given filter panel.
+         * @param filterPanel the filter controls of the statistics dialog
+         * @param filter the selection of the summarized results
+         */
+        private SummaryWorker(FilterPanel filterPanel, StatisticsIndex.Filter filter) {
+            this.filterPanel = filterPanel;
+            this.filter = filter;
+        }
+
+        /**
+         * Reads the newly recorded results and summarizes the selected ones.
+         * @return the summary of the selected results
+         */
+        @Override
+        protected StatisticsIndex.Summary doInBackground() {
+            synchronized (statisticsRepository) {
+                statisticsRepository.getResults();
+                StatisticsIndex index = statisticsRepository.getIndex();
+                languages = index.getLanguages();
+                durations = index.getDurations();
+                return index.summarize(filter);
+            }
+        }
+
+        /**
+         * Shows the summary unless the selection has changed meanwhile.
+         */
+        @Override
+        protected void done() {
+            if (filterPanel.filter != filter) {
+                return;
+            }
+            try {
+                filterPanel.showOptions(languages, durations);
+                filterPanel.showSummary(get());
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Background worker reading the stored bigram latencies of all languages into the rows of the bigram table.
+     */
+    private class BigramLatencyWorker extends SwingWorker<List<Object[]>, Void> {
+        private final DefaultTableModel model;
+
+        /**
+         * Constructs a BigramLatencyWorker filling the given table model.
+         * @param model the model of the bigram table
+         */
+        private BigramLatencyWorker(DefaultTableModel model) {
+            this.model = model;
+        }
+
+        /**
+         * Reads the stored statistics and computes the percentiles of every bigram.
+         * @return the rows of the table
+         */
+        @Override
+        protected List<Object[]> doInBackground() {
+            List<Object[]> rows = new ArrayList<>();
+            for (Map.Entry<String, BigramLatencyStats> entry : bigramLatencyStore.readAll().entrySet()) {
+                BigramLatencyStats stats = entry.getValue();
+                for (long bigram : stats.bigrams()) {
+                    String text = new StringBuilder()
+                            .appendCodePoint(BigramLatencyStats.first(bigram))
+                            .appendCodePoint(BigramLatencyStats.second(bigram))
+                            .toString().replace(' ', '\u2423');
+                    rows.add(new Object[]{entry.getKey(), text, stats.count(bigram),
+                            stats.percentile(bigram, 50) / 1000.0,
+                            stats.percentile(bigram, 95) / 1000.0,
+                            stats.percentile(bigram, 99) / 1000.0});
+                }
+            }
+            return rows;
+        }
+
+        /**
+         * Adds the rows to the table with a single change, so the table is sorted only once.
+         */
+        @Override
+        protected void done() {
+            try {
+                for (Object[] row : get()) {
+                    model.getDataVector().add(new Vector<>(Arrays.asList(row)));
+                }
+                model.fireTableDataChanged();
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Background worker exporting all recorded results into a text file.
+     */
+    private class ExportWorker extends SwingWorker<Void, Void> {
+        private final Component parent;
+        private final Path file;
+
+        /**
+         * Constructs an ExportWorker writing the given file.
+         * @param parent the dialog the messages belong to
+         * @param file the text file to write
+         */
+        private ExportWorker(Component parent, Path file) {
+            this.parent = parent;
+            this.file = file;
+        }
+
+        /**
+         * Waits for the queued results and writes all results into the file.
+         * @return nothing
+         * @throws IOException if there is an error reading the results or writing the file
+         */
+        @Override
+        protected Void doInBackground() throws IOException {
+            resultsRecorder.exportText(file);
+            return null;
+        }
+
+        /**
+         * Reports a failed export.
+         */
+        @Override
+        protected void done() {
+            try {
+                get();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            } catch (ExecutionException e) {
+                JOptionPane.showMessageDialog(parent, "Failed to export results: " + e.getCause().getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    /**
+     * Background worker parsing a text file of results and appending them to the recorded results.
+     */
+    private class ImportWorker extends SwingWorker<Integer, Void> {
+        private final Component parent;
+        private final Path file;
+
+        /**
+         * Constructs an ImportWorker reading the given file.
+         * @param parent the dialog the messages belong to
+         * @param file the text file to import
+         */
+        private ImportWorker(Component parent, Path file) {
+            this.parent = parent;
+            this.file = file;
+        }
+
+        /**
+         * Parses the file and queues its results for the results writer.
+         * @return the number of skipped lines
+         * @throws IOException if there is an error reading the file
+         */
+        @Override
+        protected Integer doInBackground() throws IOException {
+            return resultsRecorder.importText(file);
+        }
+
+        /**
+         * Tells the user how the import went.
+         */
+        @Override
+        protected void done() {
+            try {
+                int skipped = get();
+                String message = "Results have been imported." + (skipped > 0 ? "\n" + skipped + " malformed lines were skipped." : "");
+                JOptionPane.showMessageDialog(parent, message, "Information", JOptionPane.INFORMATION_MESSAGE);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            } catch (ExecutionException e) {
+                JOptionPane.showMessageDialog(parent, "Failed to import results: " + e.getCause().getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    /**
+     * Background worker erasing all recorded statistics, which waits for a compaction of the results in progress.
+     */
+    private class EraseWorker extends SwingWorker<Void, Void> {
+        private final Component button;
+
+        /**
+         * Constructs an EraseWorker started by the given button.
+         * @param button the button disabled until the statistics are erased
+         */
+        private EraseWorker(Component button) {
+            this.button = button;
+        }
+
+        /**
+         * Erases the results and the bigram latencies.
+         * @return nothing
+         */
+        @Override
+        protected Void doInBackground() {
+            resultsRecorder.eraseResults();
+            bigramLatencyStore.erase();
+            return null;
+        }
+
+        /**
+         * Enables the button again and tells the user.
+         */
+        @Override
+        protected void done() {
+            button.setEnabled(true);
+            JOptionPane.showMessageDialog(frame, "Statistics have been erased.", "Information", JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+
+    /**
+     * Creates a label shown in a tab instead of its chart.
+     * @param text the text of the label
+     * @return the centered label
+     */
+    private static JComponent createPlaceholder(String text) {
+        return new JLabel(text, SwingConstants.CENTER);
+    }
+
+    /**
+     * Creates a chart displaying WPM (Words Per Minute) statistics over time together with their rolling average.
+     * @param datasets the datasets of the selected results
+     * @return the WPM chart, or null if there are no results
+     */
+    private static JFreeChart createWPMChart(LiveDatasets datasets) {
+        if (datasets.isEmpty()) {
+            return null;
+        }
+
+        XYSeriesCollection dataset = new XYSeriesCollection();
+        dataset.addSeries(datasets.wpm);
+        dataset.addSeries(datasets.average);
+
+        return ChartFactory.createXYLineChart(
                 "Words Per Minute (WPM) Over Time",
                 "Attempt",
                 "WPM",
@@ -100,31 +793,23 @@ public class StatisticsDisplayManager {
                 true,
                 true,
                 false);
-
-        return new ChartPanel(chart);
     }
 
     /**
-     * Creates a chart panel displaying accuracy statistics over time.
-     * @return a ChartPanel containing the accuracy chart
+     * Creates a chart displaying accuracy statistics over time.
+     * @param datasets the datasets of the selected results
+     * @return the accuracy chart, or null if there are no results
      */
-    private ChartPanel createAccuracyChartPanel() {
-        List<StatisticsData> statisticsData = parseResults();
-        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        int index = 1;
-
-        if (statisticsData.isEmpty()) {
-            System.out.println("No accuracy data available.");
+    private static JFreeChart createAccuracyChart(LiveDatasets datasets) {
+        if (datasets.isEmpty()) {
             return null;
         }
 
-        for (StatisticsData data : statisticsData) {
-            dataset.addValue(data.getAccuracyWords(), "Accuracy Over Words", String.valueOf(index));
-            dataset.addValue(data.getAccuracyLetters(), "Accuracy Over Letters", String.valueOf(index));
-            index++;
-        }
+        XYSeriesCollection dataset = new XYSeriesCollection();
+        dataset.addSeries(datasets.accuracyWords);
+        dataset.addSeries(datasets.accuracyLetters);
 
-        JFreeChart chart = ChartFactory.createLineChart(
+        return ChartFactory.createXYLineChart(
                 "Accuracy Over Time",
                 "Attempt",
                 "Accuracy (%)",
@@ -133,44 +818,83 @@ public class StatisticsDisplayManager {
                 true,
                 true,
                 false);
+    }
 
-        return new ChartPanel(chart);
+    /**
+     * Creates a pie chart displaying the distribution of test durations.
+     * @param datasets the datasets of the selected results
+     * @return the pie chart, or null if there are no results
+     */
+    private static JFreeChart createDurationPieChart(LiveDatasets datasets) {
+        if (datasets.isEmpty()) {
+            return null;
+        }
+        return ChartFactory.createPieChart(
+                "Test Duration Distribution",
+                datasets.durations,
+                true, true, false);
     }
 
     /**
-     * Creates a pie chart panel displaying the distribution of test durations.
-     * @return a ChartPanel containing the pie chart
+     * Creates a table of the latency percentiles of every bigram typed so far, slowest bigrams first.
+     * The stored statistics are read by a background worker, which fills the table when done.
+     * @return a panel containing the sortable table
      */
-    private ChartPanel createDurationPieChartPanel() {
-        List<StatisticsData> statisticsData = parseResults();
-        DefaultPieDataset<String> dataset = new DefaultPieDataset<>();
+    private JComponent createBigramLatencyPanel() {
+        String[] columns = {"Language", "Bigram", "Samples", "p50 (ms)", "p95 (ms)", "p99 (ms)"};
+        DefaultTableModel model = new DefaultTableModel(columns, 0) {
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return column < 2 ? String.class : column == 2 ? Long.class : Double.class;
+            }
 
-        // Count frequencies of each duration
-        Map<Integer, Integer> durationCounts = new HashMap<>();
-        for (StatisticsData data : statisticsData) {
-            durationCounts.merge(data.getDuration(), 1, Integer::sum);
-        }
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
 
-        // Add data to the dataset
-        for (Map.Entry<Integer, Integer> entry : durationCounts.entrySet()) {
-            dataset.setValue(entry.getKey() + "s", entry.getValue());
-        }
+        new BigramLatencyWorker(model).execute();
 
-        JFreeChart chart = ChartFactory.createPieChart(
-                "Test Duration Distribution",
-                dataset,
-                true, true, false);
+        JTable table = new JTable(model);
+        TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(model);
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(4, SortOrder.DESCENDING)));
+        table.setRowSorter(sorter);
+        return new JScrollPane(table);
+    }
 
-        return new ChartPanel(chart);
+    /**
+     * Exports all recorded results into a text file chosen by the user on a background worker.
+     * @param parent the dialog the file chooser belongs to
+     */
+    private void exportStatistics(Component parent) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("typing_results.txt"));
+        if (chooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        new ExportWorker(parent, chooser.getSelectedFile().toPath()).execute();
     }
 
     /**
-     * Erases all recorded statistics.
+     * Imports results from a text file chosen by the user on a background worker.
+     * @param parent the dialog the file chooser belongs to
+     */
+    private void importStatistics(Component parent) {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        new ImportWorker(parent, chooser.getSelectedFile().toPath()).execute();
+    }
+
+    /**
+     * Erases all recorded statistics on a background worker.
      * @param event the action event triggering this method
      */
     private void eraseStatistics(ActionEvent event) {
-        resultsRecorder.eraseResults();
-
-        JOptionPane.showMessageDialog(frame, "Statistics have been erased.", "Information", JOptionPane.INFORMATION_MESSAGE);
+        Component button = (Component) event.getSource();
+        button.setEnabled(false);
+        new EraseWorker(button).execute();
     }
 }
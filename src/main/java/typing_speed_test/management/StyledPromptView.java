@@ -0,0 +1,175 @@
+package typing_speed_test.management;
+
+import typing_speed_test.diagnostics.LatencyMonitor;
+import typing_speed_test.diagnostics.PromptPaintEvent;
+
+import javax.swing.*;
+import javax.swing.text.*;
+import java.awt.*;
+
+/**
+ * Prompt view backed by a JTextPane with a styled document.
+ * Statuses are displayed as foreground colors of the document's characters.
+ */
+public class StyledPromptView implements PromptView {
+    private final JTextPane textPane;
+    private final AttributeSet[] statusAttributes = new AttributeSet[3];
+    private SimpleAttributeSet fontAttr;
+    private AttributeSet[] runAttributes = new AttributeSet[0];
+
+    /**
+     * Text pane which reports its paints to a latency monitor.
+     */
+    private static class PromptTextPane extends JTextPane {
+        private static final long serialVersionUID = 1L;
+        private LatencyMonitor latencyMonitor;
+
+        /**
+         * Constructs a PromptTextPane displaying the given document.
+         *
+         * @param doc the document of the prompt
+         */
+        PromptTextPane(StyledDocument doc) {
+            super(doc);
+        }
+
+        /**
+         * Paints the text pane and reports the finished paint.
+         *
+         * @param g the graphics context
+         */
+        @Override
+        protected void paintComponent(Graphics g) {
+            PromptPaintEvent event = new PromptPaintEvent();
+            event.begin();
+            super.paintComponent(g);
+            event.end();
+            if (latencyMonitor != null) {
+                event.keystrokeLatency = latencyMonitor.painted(System.nanoTime());
+            }
+            event.commit();
+        }
+    }
+
+    /**
+     * Constructs a StyledPromptView with a new non-editable text pane with centered text.
+     */
+    public StyledPromptView() {
+        this(createTextPane());
+    }
+
+    /**
+     * Constructs a StyledPromptView displaying the prompt in the given JTextPane.
+     *
+     * @param textPane the JTextPane to manage
+     */
+    public StyledPromptView(JTextPane textPane) {
+        this.textPane = textPane;
+        initAttributes();
+    }
+
+    /**
+     * Creates the text pane used when no text pane is given.
+     *
+     * @return a non-editable text pane with centered paragraphs
+     */
+    private static JTextPane createTextPane() {
+        JTextPane textPane = new PromptTextPane(new PromptDocument());
+        textPane.setEditable(false);
+        textPane.setPreferredSize(new Dimension(800, 200));
+
+        StyledDocument doc = textPane.getStyledDocument();
+        SimpleAttributeSet centerAttr = new SimpleAttributeSet();
+        StyleConstants.setAlignment(centerAttr, StyleConstants.ALIGN_CENTER);
+        doc.setParagraphAttributes(0, doc.getLength(), centerAttr, true);
+        return textPane;
+    }
+
+    /**
+     * Initializes text attributes for correct, incorrect, and untyped text.
+     */
+    private void initAttributes() {
+        SimpleAttributeSet correctAttr = new SimpleAttributeSet();
+        StyleConstants.setForeground(correctAttr, Color.BLACK);
+        statusAttributes[CORRECT] = correctAttr;
+
+        SimpleAttributeSet incorrectAttr = new SimpleAttributeSet();
+        StyleConstants.setForeground(incorrectAttr, Color.RED);
+        statusAttributes[INCORRECT] = incorrectAttr;
+
+        SimpleAttributeSet untypedAttr = new SimpleAttributeSet();
+        StyleConstants.setForeground(untypedAttr, Color.GRAY);
+        statusAttributes[UNTYPED] = untypedAttr;
+
+        fontAttr = new SimpleAttributeSet();
+        StyleConstants.setFontFamily(fontAttr, "SansSerif");
+        StyleConstants.setFontSize(fontAttr, 25);
+    }
+
+    /**
+     * Replaces the content of the text pane with the given chunk, displayed as untyped text.
+     *
+     * @param text the chunk of words to display
+     */
+    @Override
+    public void showText(String text) {
+        try {
+            StyledDocument doc = textPane.getStyledDocument();
+            doc.remove(0, doc.getLength());
+            doc.insertString(0, text, statusAttributes[UNTYPED]);
+            doc.setCharacterAttributes(0, doc.getLength(), fontAttr, false);
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+        }
+
+        if (runAttributes.length < text.length()) {
+            runAttributes = new AttributeSet[text.length()];
+        }
+    }
+
+    /**
+     * Applies the colors of the given runs, in a single document update when the document supports it.
+     *
+     * @param starts   the start offsets of the runs
+     * @param lengths  the lengths of the runs
+     * @param statuses the new status of each run
+     * @param count    the number of runs
+     */
+    @Override
+    public void setStatus(int[] starts, int[] lengths, byte[] statuses, int count) {
+        StyledDocument doc = textPane.getStyledDocument();
+        if (doc instanceof PromptDocument) {
+            for (int i = 0; i < count; i++) {
+                runAttributes[i] = statusAttributes[statuses[i]];
+            }
+            ((PromptDocument) doc).setCharacterAttributes(starts, lengths, runAttributes, count);
+        } else {
+            for (int i = 0; i < count; i++) {
+                doc.setCharacterAttributes(starts[i], lengths[i], statusAttributes[statuses[i]], false);
+            }
+        }
+    }
+
+    /**
+     * Returns the managed text pane.
+     *
+     * @return the text pane displaying the prompt
+     */
+    @Override
+    public JComponent getComponent() {
+        return textPane;
+    }
+
+    /**
+     * Sets the monitor told about every finished paint of the prompt.
+     * Paints are reported only by the text pane created by this view.
+     *
+     * @param latencyMonitor the monitor measuring the latency of keystrokes, or null
+     */
+    @Override
+    public void setLatencyMonitor(LatencyMonitor latencyMonitor) {
+        if (textPane instanceof PromptTextPane) {
+            ((PromptTextPane) textPane).latencyMonitor = latencyMonitor;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package typing_speed_test.session;
+
+/**
+ * Displays the chunk of words the user is supposed to type.
+ * Every character of the chunk has a status telling whether it is untyped, typed correctly or typed incorrectly.
+ */
+public interface ChunkView {
+    byte UNTYPED = 0;
+    byte CORRECT = 1;
+    byte INCORRECT = 2;
+
+    /**
+     * View which displays nothing, used when sessions run without a user interface.
+     */
+    ChunkView NONE = new ChunkView() {
+        @Override
+        public void showText(String text) {
+        }
+
+        @Override
+        public void setStatus(int[] starts, int[] lengths, byte[] statuses, int count) {
+        }
+    };
+
+    /**
+     * Displays a new chunk of words with all characters untyped.
+     *
+     * @param text the chunk of words to display
+     */
+    void showText(String text);
+
+    /**
+     * Changes the status of several runs of characters of the displayed chunk at once.
+     * The runs must be ordered by their start offsets and must not overlap.
+     *
+     * @param starts   the start offsets of the runs
+     * @param lengths  the lengths of the runs
+     * @param statuses the new status of each run
+     * @param count    the number of runs
+     */
+    void setStatus(int[] starts, int[] lengths, byte[] statuses, int count);
+}
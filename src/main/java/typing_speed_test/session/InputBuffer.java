@@ -0,0 +1,103 @@
+package typing_speed_test.session;
+
+import typing_speed_test.analytics.KeystrokeListener;
+
+/**
+ * In-memory input which forwards every change to a typing session, used to run sessions without a user interface.
+ * Characters are typed and deleted at the end of the input, as with a cursor which is never moved,
+ * or inserted and deleted at given offsets, as recorded keystrokes are replayed.
+ */
+public class InputBuffer implements InputText {
+    private final StringBuilder text = new StringBuilder();
+    private final TypingSession session;
+
+    /**
+     * Constructs an empty InputBuffer for the given session.
+     *
+     * @param session the session notified of the changes
+     */
+    public InputBuffer(TypingSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Discards the whole input without notifying the session, used before the session is started.
+     */
+    public void clear() {
+        text.setLength(0);
+    }
+
+    /**
+     * Types a single character at the end of the input.
+     *
+     * @param codePoint the typed character
+     * @param nanoTime  the time of the keystroke
+     */
+    public void type(int codePoint, long nanoTime) {
+        int offset = text.length();
+        text.appendCodePoint(codePoint);
+        session.inserted(offset, text.length() - offset, nanoTime);
+    }
+
+    /**
+     * Deletes the last character of the input, if there is any.
+     *
+     * @param nanoTime the time of the keystroke
+     */
+    public void backspace(long nanoTime) {
+        if (text.length() == 0) {
+            return;
+        }
+        int length = Character.isLowSurrogate(text.charAt(text.length() - 1)) && text.length() > 1 ? 2 : 1;
+        text.setLength(text.length() - length);
+        session.removed(text.length(), length, nanoTime);
+    }
+
+    /**
+     * Inserts a single character at an offset of the input.
+     *
+     * @param offset    the offset of the inserted character, at most the length of the input
+     * @param codePoint the inserted character
+     * @param nanoTime  the time of the keystroke
+     */
+    public void insert(int offset, int codePoint, long nanoTime) {
+        int length = Character.charCount(codePoint);
+        text.insert(offset, Character.toChars(codePoint));
+        session.inserted(offset, length, nanoTime);
+    }
+
+    /**
+     * Deletes a single character at an offset of the input.
+     *
+     * @param offset    the offset of the deleted character, less than the length of the input
+     * @param codePoint the deleted character, or UNKNOWN if only a single char is known to be deleted
+     * @param nanoTime  the time of the keystroke
+     */
+    public void delete(int offset, int codePoint, long nanoTime) {
+        int length = codePoint == KeystrokeListener.UNKNOWN ? 1 : Character.charCount(codePoint);
+        text.delete(offset, offset + length);
+        session.removed(offset, length, nanoTime);
+    }
+
+    /**
+     * Returns the length of the typed text.
+     *
+     * @return the number of characters typed
+     */
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    /**
+     * Reads a span of the typed text.
+     *
+     * @param offset the start of the span
+     * @param length the length of the span
+     * @return the text of the span
+     */
+    @Override
+    public String read(int offset, int length) {
+        return text.substring(offset, offset + length);
+    }
+}
@@ -0,0 +1,23 @@
+package typing_speed_test.session;
+
+/**
+ * Read access to the text typed by the user, such as the document of a text area or an in-memory buffer.
+ */
+public interface InputText {
+
+    /**
+     * Returns the length of the typed text.
+     *
+     * @return the number of characters typed
+     */
+    int length();
+
+    /**
+     * Reads a span of the typed text.
+     *
+     * @param offset the start of the span
+     * @param length the length of the span
+     * @return the text of the span
+     */
+    String read(int offset, int length);
+}
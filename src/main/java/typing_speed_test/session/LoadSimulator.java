@@ -0,0 +1,115 @@
+package typing_speed_test.session;
+
+import typing_speed_test.analytics.BigramLatencyRecorder;
+import typing_speed_test.analytics.KeystrokeRecorder;
+import typing_speed_test.data.TextLoader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many synthetic typing tests on headless sessions and reports how many sessions
+ * and keystrokes are processed per second.
+ * Every test loads its text, is typed by a synthetic typist with recording of keystrokes
+ * and bigram latencies attached, and is scored at the end, just like a test in the application.
+ * <p>
+ * Arguments, all optional: number of sessions (1000), number of threads (available processors),
+ * language (English), duration in seconds (60), typing speed in WPM (80) and error rate (0.05).
+ */
+public class LoadSimulator {
+
+    /**
+     * Totals of the sessions simulated by a single thread.
+     */
+    private static class Totals {
+        long keystrokes;
+        long wpm;
+        double accuracy;
+    }
+
+    /**
+     * Runs the simulation with the given arguments and prints the throughput.
+     *
+     * @param args command line arguments as described above
+     */
+    public static void main(String[] args) {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        String language = args.length > 2 ? args[2] : "English";
+        int duration = args.length > 3 ? Integer.parseInt(args[3]) : 60;
+        int wpm = args.length > 4 ? Integer.parseInt(args[4]) : 80;
+        double errorRate = args.length > 5 ? Double.parseDouble(args[5]) : 0.05;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long begin = System.nanoTime();
+            List<Future<Totals>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int share = sessions / threads + (t < sessions % threads ? 1 : 0);
+                long seed = t;
+                futures.add(executor.submit(() -> simulate(share, language, duration, wpm, errorRate, seed)));
+            }
+            Totals totals = new Totals();
+            for (Future<Totals> future : futures) {
+                Totals part = future.get();
+                totals.keystrokes += part.keystrokes;
+                totals.wpm += part.wpm;
+                totals.accuracy += part.accuracy;
+            }
+            double seconds = (System.nanoTime() - begin) / 1e9;
+
+            System.out.printf("%d sessions, %d keystrokes in %.2f s on %d threads%n", sessions, totals.keystrokes, seconds, threads);
+            System.out.printf("%.0f sessions/s, %.0f keystrokes/s%n", sessions / seconds, totals.keystrokes / seconds);
+            if (sessions > 0) {
+                System.out.printf("Average WPM %.1f, average accuracy %.2f%%%n",
+                        (double) totals.wpm / sessions, totals.accuracy / sessions);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Simulates a number of sessions one after another on the current thread.
+     *
+     * @param sessions  the number of sessions
+     * @param language  the language of the text
+     * @param duration  the duration of every test in seconds
+     * @param wpm       the typing speed of the synthetic typist
+     * @param errorRate the probability of a wrong character
+     * @param seed      the seed of this thread
+     * @return the totals of the simulated sessions
+     * @throws IOException if the text cannot be loaded
+     */
+    private static Totals simulate(int sessions, String language, int duration, int wpm, double errorRate, long seed) throws IOException {
+        TypingSession session = new TypingSession();
+        InputBuffer input = new InputBuffer(session);
+        KeystrokeRecorder keystrokeRecorder = new KeystrokeRecorder();
+        BigramLatencyRecorder bigramLatencyRecorder = new BigramLatencyRecorder();
+        session.addKeystrokeListener(keystrokeRecorder);
+        session.addKeystrokeListener(bigramLatencyRecorder);
+        SyntheticTypist typist = new SyntheticTypist(wpm, errorRate, 0.8, seed);
+
+        Totals totals = new Totals();
+        for (int i = 0; i < sessions; i++) {
+            input.clear();
+            session.start(new TextLoader(language, TextLoader.Mode.SHUFFLE, seed * sessions + i), input, 0);
+            keystrokeRecorder.start(0);
+            bigramLatencyRecorder.start();
+            totals.keystrokes += typist.type(session, input, duration);
+            SessionResult result = session.finish(duration);
+            totals.wpm += result.getWpm();
+            totals.accuracy += result.getAccuracyLetters();
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,97 @@
+package typing_speed_test.session;
+
+import java.util.Arrays;
+
+/**
+ * Time spent processing every keystroke of a replayed session, together with the result of the session.
+ */
+public class ReplayReport {
+    private final long[] processingNanos;
+    private final long[] sortedNanos;
+    private final long totalNanos;
+    private final SessionResult result;
+
+    /**
+     * Constructs a ReplayReport.
+     *
+     * @param processingNanos the time spent processing each keystroke, in the order of the keystrokes
+     * @param result          the result of the replayed session
+     */
+    public ReplayReport(long[] processingNanos, SessionResult result) {
+        this.processingNanos = processingNanos;
+        this.sortedNanos = processingNanos.clone();
+        Arrays.sort(sortedNanos);
+        long total = 0;
+        for (long nanos : processingNanos) {
+            total += nanos;
+        }
+        this.totalNanos = total;
+        this.result = result;
+    }
+
+    /**
+     * Returns the number of replayed keystrokes.
+     *
+     * @return the number of keystrokes
+     */
+    public int getKeystrokes() {
+        return processingNanos.length;
+    }
+
+    /**
+     * Returns the time spent processing all keystrokes.
+     *
+     * @return the total time in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Returns the time spent processing a single keystroke.
+     *
+     * @param index the index of the keystroke in the session
+     * @return the time in nanoseconds
+     */
+    public long getProcessingNanos(int index) {
+        return processingNanos[index];
+    }
+
+    /**
+     * Returns the processing time below which the given share of keystrokes was processed.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the time in nanoseconds, or 0 if no keystrokes were replayed
+     */
+    public long percentile(double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))];
+    }
+
+    /**
+     * Returns the index of the keystroke which took the longest to process.
+     *
+     * @return the index of the slowest keystroke, or -1 if no keystrokes were replayed
+     */
+    public int getSlowestKeystroke() {
+        int slowest = -1;
+        for (int i = 0; i < processingNanos.length; i++) {
+            if (slowest < 0 || processingNanos[i] > processingNanos[slowest]) {
+                slowest = i;
+            }
+        }
+        return slowest;
+    }
+
+    /**
+     * Returns the result of the replayed session.
+     *
+     * @return the session result
+     */
+    public SessionResult getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,92 @@
+package typing_speed_test.session;
+
+import typing_speed_test.analytics.KeystrokeListener;
+import typing_speed_test.analytics.KeystrokeLog;
+import typing_speed_test.data.TextLoader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Replays a recorded session through a headless typing session as fast as possible,
+ * measuring how long every keystroke takes to process.
+ * The displayed text is generated again from the language, mode and seed stored in the session file
+ * and every keystroke is applied at its recorded offset of the input with its recorded timestamp,
+ * so the replay advances through the same chunks and reaches the same result as the recorded test,
+ * also where the user moved the cursor, selected text or pasted.
+ */
+public class SessionReplayer {
+
+    /**
+     * Replays a recorded session without displaying it.
+     *
+     * @param log the recorded keystrokes
+     * @return the processing time of every keystroke and the result of the session
+     * @throws IOException if the text of the session cannot be loaded, the session is incomplete
+     *                     or a keystroke lies beyond the replayed input
+     */
+    public static ReplayReport replay(KeystrokeLog log) throws IOException {
+        return replay(log, ChunkView.NONE);
+    }
+
+    /**
+     * Replays a recorded session, displaying its chunks in the given view.
+     *
+     * @param log  the recorded keystrokes
+     * @param view the view displaying the replayed chunks
+     * @return the processing time of every keystroke and the result of the session
+     * @throws IOException if the text of the session cannot be loaded, the session is incomplete
+     *                     or a keystroke lies beyond the replayed input
+     */
+    public static ReplayReport replay(KeystrokeLog log, ChunkView view) throws IOException {
+        if (log.getDropped() > 0) {
+            throw new IOException("The session lost its first " + log.getDropped() + " keystrokes and cannot be replayed");
+        }
+        TypingSession session = new TypingSession(view);
+        InputBuffer input = new InputBuffer(session);
+        session.start(new TextLoader(log.getLanguage(), log.getMode(), log.getSeed()), input, 0);
+
+        long[] processingNanos = new long[log.size()];
+        for (int i = 0; i < log.size(); i++) {
+            boolean insert = log.action(i) == KeystrokeListener.INSERT;
+            int offset = log.offset(i);
+            if (offset < 0 || offset > input.length() || !insert && offset == input.length()
+                    || insert && log.codePoint(i) == KeystrokeListener.UNKNOWN) {
+                throw new IOException("Keystroke " + i + " at offset " + offset + " does not fit the replayed input of length "
+                        + input.length());
+            }
+            long begin = System.nanoTime();
+            if (insert) {
+                input.insert(offset, log.codePoint(i), log.timestamp(i));
+            } else {
+                input.delete(offset, log.codePoint(i), log.timestamp(i));
+            }
+            processingNanos[i] = System.nanoTime() - begin;
+        }
+        return new ReplayReport(processingNanos, session.finish(log.getDuration()));
+    }
+
+    /**
+     * Replays the session files given as arguments and prints the processing times of their keystrokes.
+     *
+     * @param args paths of the session files
+     */
+    public static void main(String[] args) {
+        for (String arg : args) {
+            Path file = Paths.get(arg);
+            try {
+                ReplayReport report = replay(KeystrokeLog.read(file));
+                SessionResult result = report.getResult();
+                int slowest = report.getSlowestKeystroke();
+                System.out.println(file + ": " + report.getKeystrokes() + " keystrokes in " + report.getTotalNanos() / 1000 + " us" +
+                        ", p50 " + report.percentile(50) / 1000.0 + " us" +
+                        ", p99 " + report.percentile(99) / 1000.0 + " us" +
+                        (slowest < 0 ? "" : ", max " + report.getProcessingNanos(slowest) / 1000.0 + " us at keystroke " + slowest) +
+                        "; WPM " + result.getWpm() + String.format(", accuracy %.2f%%", result.getAccuracyLetters()));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package typing_speed_test.session;
+
+/**
+ * Final result of a typing session.
+ */
+public class SessionResult {
+    private final int typedWords;
+    private final int wpm;
+    private final double accuracyWords;
+    private final double accuracyLetters;
+    private final int duration;
+    private final String language;
+
+    /**
+     * Constructs a new instance of SessionResult.
+     *
+     * @param typedWords      number of words typed
+     * @param wpm             words per minute achieved
+     * @param accuracyWords   accuracy percentage over words
+     * @param accuracyLetters accuracy percentage over letters
+     * @param duration        duration of the test in seconds
+     * @param language        language used in the test
+     */
+    public SessionResult(int typedWords, int wpm, double accuracyWords, double accuracyLetters, int duration, String language) {
+        this.typedWords = typedWords;
+        this.wpm = wpm;
+        this.accuracyWords = accuracyWords;
+        this.accuracyLetters = accuracyLetters;
+        this.duration = duration;
+        this.language = language;
+    }
+
+    /**
+     * Returns the number of words typed.
+     *
+     * @return the number of typed words
+     */
+    public int getTypedWords() {
+        return typedWords;
+    }
+
+    /**
+     * Returns the words per minute.
+     *
+     * @return the rate of words per minute
+     */
+    public int getWpm() {
+        return wpm;
+    }
+
+    /**
+     * Returns the accuracy of words.
+     *
+     * @return the words accuracy as a percentage
+     */
+    public double getAccuracyWords() {
+        return accuracyWords;
+    }
+
+    /**
+     * Returns the accuracy of letters.
+     *
+     * @return the letters accuracy as a percentage
+     */
+    public double getAccuracyLetters() {
+        return accuracyLetters;
+    }
+
+    /**
+     * Returns the duration of the test.
+     *
+     * @return the duration in seconds
+     */
+    public int getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the language of the test.
+     *
+     * @return the language used during the test
+     */
+    public String getLanguage() {
+        return language;
+    }
+}
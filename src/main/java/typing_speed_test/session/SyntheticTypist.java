@@ -0,0 +1,71 @@
+package typing_speed_test.session;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates a synthetic stream of keystrokes for a typing session.
+ * The typist types the expected characters at a given speed with random variation between keystrokes,
+ * types a wrong character with a given probability and deletes it again with another probability.
+ * Time is simulated, so a whole test is typed as fast as the session can process it.
+ */
+public class SyntheticTypist {
+    private final long meanInterval;
+    private final double errorRate;
+    private final double correctionRate;
+    private final SplittableRandom random;
+
+    /**
+     * Constructs a SyntheticTypist.
+     *
+     * @param wpm            the average typing speed in words of five characters per minute
+     * @param errorRate      the probability of typing a wrong character
+     * @param correctionRate the probability of deleting a wrong character right after typing it
+     * @param seed           the seed of the random decisions
+     */
+    public SyntheticTypist(int wpm, double errorRate, double correctionRate, long seed) {
+        this.meanInterval = 60_000_000_000L / (Math.max(1, wpm) * 5L);
+        this.errorRate = errorRate;
+        this.correctionRate = correctionRate;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Types into a started session until the duration of the test elapses.
+     * The session is expected to have been started at the simulated time 0.
+     *
+     * @param session  the session being typed into
+     * @param input    the input of the session
+     * @param duration the duration of the test in seconds
+     * @return the number of keystrokes typed
+     */
+    public int type(TypingSession session, InputBuffer input, int duration) {
+        long end = duration * 1_000_000_000L;
+        long now = 0;
+        int keystrokes = 0;
+        boolean mistyped = false;
+        while (true) {
+            // Intervals vary uniformly by half of the mean in both directions
+            now += meanInterval / 2 + random.nextLong(meanInterval);
+            if (now >= end) {
+                return keystrokes;
+            }
+            if (mistyped && random.nextDouble() < correctionRate) {
+                input.backspace(now);
+                mistyped = false;
+            } else {
+                int expected = session.expectedNext();
+                if (expected < 0) {
+                    // Extra characters past the end of the chunk are removed first
+                    input.backspace(now);
+                } else if (random.nextDouble() < errorRate) {
+                    input.type(expected == 'x' ? 'y' : 'x', now);
+                    mistyped = true;
+                } else {
+                    input.type(expected, now);
+                    mistyped = false;
+                }
+            }
+            keystrokes++;
+        }
+    }
+}
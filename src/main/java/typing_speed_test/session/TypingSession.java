@@ -0,0 +1,441 @@
+package typing_speed_test.session;
+
+import typing_speed_test.analytics.AlignmentScore;
+import typing_speed_test.analytics.AlignmentScorer;
+import typing_speed_test.analytics.KeystrokeListener;
+import typing_speed_test.analytics.LiveMetrics;
+import typing_speed_test.data.TextLoader;
+import typing_speed_test.diagnostics.ChunkSwapEvent;
+import typing_speed_test.diagnostics.StyleUpdateEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Runs a single typing test without any dependency on the user interface.
+ * The session is told about every change of the input together with the time it happened,
+ * advances and retreats the chunks of words, keeps the status of every displayed character,
+ * updates the live metrics, notifies the keystroke listeners and scores the test once it is finished.
+ * Only the inserted or removed span of every change is processed and the part of the input
+ * which belongs to the currently displayed chunk is kept separately, so the cost of a keystroke
+ * does not depend on how much text has been typed during the test.
+ * <p>
+ * The session is driven either by the document of the input area or by an InputBuffer,
+ * which replays recorded or synthetic keystrokes as fast as they can be processed.
+ * A session is not thread-safe, but independent sessions can run on different threads.
+ */
+public class TypingSession {
+    private final ChunkView view;
+    private final List<KeystrokeListener> keystrokeListeners = new ArrayList<>();
+    private final LiveMetrics liveMetrics = new LiveMetrics();
+    private final AlignmentScorer scorer = new AlignmentScorer();
+
+    private TextLoader textLoader;
+    private InputText input;
+    private String currentWords;
+    private final Deque<String> previousWords = new ArrayDeque<>();
+    private final Deque<byte[]> previousStatus = new ArrayDeque<>();
+    // Chunks which were already displayed and left by going back to a previous chunk
+    private final Deque<String> followingWords = new ArrayDeque<>();
+
+    // Part of the input which belongs to the current chunk and the offset where it starts
+    private final StringBuilder active = new StringBuilder();
+    private final Deque<Integer> previousStarts = new ArrayDeque<>();
+    private int chunkStart;
+
+    // Status of every character of the current chunk as it is currently displayed
+    private byte[] styledStatus = new byte[0];
+    // Length of the input belonging to the current chunk, as seen by the previous update
+    private int styledLength;
+    // Runs of characters to be restyled by the current update
+    private int[] runStarts = new int[0];
+    private int[] runLengths = new int[0];
+    private byte[] runStatuses = new byte[0];
+
+    /**
+     * Constructs a TypingSession which displays nothing.
+     */
+    public TypingSession() {
+        this(ChunkView.NONE);
+    }
+
+    /**
+     * Constructs a TypingSession displaying its chunks in the given view.
+     *
+     * @param view the view displaying the text to be typed
+     */
+    public TypingSession(ChunkView view) {
+        this.view = view;
+    }
+
+    /**
+     * Registers a listener notified of every inserted and deleted character.
+     *
+     * @param listener the listener to add
+     */
+    public void addKeystrokeListener(KeystrokeListener listener) {
+        keystrokeListeners.add(listener);
+    }
+
+    /**
+     * Starts a new test with the first chunk of words of the given loader.
+     * The input is expected to be empty or to be cleared right afterwards.
+     *
+     * @param textLoader the loader providing the text to be typed
+     * @param input      the text typed by the user
+     * @param nanoTime   the value of System.nanoTime at the start of the test
+     */
+    public void start(TextLoader textLoader, InputText input, long nanoTime) {
+        this.textLoader = textLoader;
+        this.input = input;
+        previousWords.clear();
+        previousStatus.clear();
+        followingWords.clear();
+        active.setLength(0);
+        previousStarts.clear();
+        chunkStart = 0;
+        liveMetrics.start(nanoTime);
+        currentWords = textLoader.getNext();
+        showChunk();
+    }
+
+    /**
+     * Finishes the test and scores the typed text against the text which was displayed.
+     *
+     * @param duration the duration of the test in seconds
+     * @return the result of the test
+     */
+    public SessionResult finish(int duration) {
+        String typed = input.read(0, input.length()).trim();
+
+        // Skipped or extra words and letters only count as single errors
+        AlignmentScore score = scorer.score(typed, textLoader.getEmittedText());
+        return new SessionResult(liveMetrics.getTypedWords(), liveMetrics.getWpm(duration),
+                score.getAccuracyWords(), score.getAccuracyLetters(), duration, textLoader.getLanguage());
+    }
+
+    /**
+     * Handles text inserted into the input, whether typed, auto-repeated or pasted.
+     * The input must already contain the inserted text.
+     *
+     * @param offset   the offset of the inserted text
+     * @param length   the length of the inserted text
+     * @param nanoTime the time of the change
+     */
+    public void inserted(int offset, int length, long nanoTime) {
+        if (currentWords == null) {
+            return;
+        }
+        if (offset >= chunkStart) {
+            String text = input.read(offset, length);
+            notifyKeystrokes(text, 0, text.length(), offset, offset - chunkStart, KeystrokeListener.INSERT, nanoTime);
+            active.insert(offset - chunkStart, text);
+            refresh(offset - chunkStart);
+        } else {
+            if (!keystrokeListeners.isEmpty()) {
+                String text = input.read(offset, length);
+                notifyKeystrokes(text, 0, text.length(), offset, -1, KeystrokeListener.INSERT, nanoTime);
+            }
+            // Text inserted before the current chunk shifts earlier input into it
+            int shifted = Math.min(length, input.length() - chunkStart);
+            if (shifted > 0) {
+                active.insert(0, input.read(chunkStart, shifted));
+                refresh(0);
+            }
+        }
+    }
+
+    /**
+     * Handles text removed from the input, including backspace across a chunk boundary.
+     * The input must no longer contain the removed text.
+     *
+     * @param offset   the offset of the removed text
+     * @param length   the length of the removed text
+     * @param nanoTime the time of the change
+     */
+    public void removed(int offset, int length, long nanoTime) {
+        if (currentWords == null) {
+            return;
+        }
+        if (offset >= chunkStart) {
+            int from = offset - chunkStart;
+            int to = Math.min(from + length, active.length());
+            notifyKeystrokes(active, from, to, offset, from, KeystrokeListener.DELETE, nanoTime);
+            active.delete(from, from + length);
+            refresh(from);
+            return;
+        }
+
+        // Characters removed before the current chunk are no longer known
+        for (int i = 0; i < length; i++) {
+            for (KeystrokeListener listener : keystrokeListeners) {
+                listener.keystroke(nanoTime, offset, KeystrokeListener.UNKNOWN, KeystrokeListener.UNKNOWN, KeystrokeListener.DELETE);
+            }
+        }
+
+        // Text removed before the current chunk pulls later input out of it
+        active.delete(0, Math.min(length, active.length()));
+
+        // Return to the previous chunks when their last letters were removed
+        while (input.length() < chunkStart - 1 && !previousStarts.isEmpty()) {
+            chunkStart = previousStarts.pop();
+            previousChunk();
+            active.setLength(0);
+            if (input.length() > chunkStart) {
+                active.append(input.read(chunkStart, input.length() - chunkStart));
+            }
+        }
+        refresh(0);
+    }
+
+    /**
+     * Returns the character the user is expected to type at a position of the current chunk.
+     *
+     * @param index the position within the chunk
+     * @return the expected character, a space right after the chunk, or -1 beyond it
+     */
+    public int expectedCharAt(int index) {
+        if (index < currentWords.length()) {
+            return currentWords.charAt(index);
+        }
+        return index == currentWords.length() ? ' ' : -1;
+    }
+
+    /**
+     * Returns the character the user is expected to type next at the end of the input.
+     *
+     * @return the expected character, or -1 if the input is already longer than the current chunk
+     */
+    public int expectedNext() {
+        // A chunk is left after its last letter, before the space separating it from the next one
+        if (input.length() == chunkStart - 1) {
+            return ' ';
+        }
+        return expectedCharAt(input.length() - chunkStart);
+    }
+
+    /**
+     * Returns the chunk of words which is currently displayed.
+     *
+     * @return the current chunk, or null if no test has been started
+     */
+    public String getCurrentWords() {
+        return currentWords;
+    }
+
+    /**
+     * Returns the metrics of the running test, updated with every keystroke.
+     *
+     * @return the live metrics
+     */
+    public LiveMetrics getLiveMetrics() {
+        return liveMetrics;
+    }
+
+    /**
+     * Restyles the current chunk and moves on to the next ones once they are fully typed.
+     *
+     * @param from the first index of the chunk affected by the change
+     */
+    private void refresh(int from) {
+        updateStatus(from);
+
+        int chunkLength = currentWords.length();
+        while (chunkLength > 0 && active.length() >= chunkLength) {
+            // The chunk is followed by a separating space which is not displayed
+            int consumed = chunkLength + 1;
+            previousStarts.push(chunkStart);
+            chunkStart += consumed;
+            active.delete(0, Math.min(consumed, active.length()));
+
+            nextChunk();
+            updateStatus(0);
+            chunkLength = currentWords.length();
+        }
+    }
+
+    /**
+     * Updates the status of the characters of the current chunk, marking correct and incorrect letters.
+     * Only the characters from the first changed index whose status actually differs are restyled,
+     * grouped into runs of equal status which are applied in a single update of the view.
+     *
+     * @param from the first index of the chunk affected by the latest change
+     */
+    private void updateStatus(int from) {
+        StyleUpdateEvent event = new StyleUpdateEvent();
+        event.begin();
+        int changed = 0;
+        int to = Math.min(Math.max(active.length(), styledLength), styledStatus.length);
+        styledLength = active.length();
+
+        // Group adjacent changed characters with the same new status into runs
+        int runCount = 0;
+        for (int i = from; i < to; i++) {
+            byte status = statusOf(i);
+            if (status == styledStatus[i]) {
+                continue;
+            }
+            countStatusChange(i, styledStatus[i], status);
+            changed++;
+            if (runCount > 0 && runStatuses[runCount - 1] == status
+                    && runStarts[runCount - 1] + runLengths[runCount - 1] == i) {
+                runLengths[runCount - 1]++;
+            } else {
+                runStarts[runCount] = i;
+                runLengths[runCount] = 1;
+                runStatuses[runCount] = status;
+                runCount++;
+            }
+            styledStatus[i] = status;
+        }
+
+        if (runCount > 0) {
+            view.setStatus(runStarts, runLengths, runStatuses, runCount);
+        }
+
+        int typedInChunk = Math.min(styledLength, currentWords.length());
+        liveMetrics.setInsideWord(typedInChunk > 0 && currentWords.charAt(typedInChunk - 1) != ' ');
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.from = from;
+            event.changed = changed;
+            event.runs = runCount;
+            event.commit();
+        }
+    }
+
+    /**
+     * Updates the live metrics with a changed status of a single character.
+     *
+     * @param index     the index of the character within the chunk
+     * @param oldStatus the previous status of the character
+     * @param newStatus the new status of the character
+     */
+    private void countStatusChange(int index, byte oldStatus, byte newStatus) {
+        boolean wordBoundary = currentWords.charAt(index) == ' ';
+        if (oldStatus != ChunkView.UNTYPED) {
+            liveMetrics.removeLetter(oldStatus == ChunkView.CORRECT, wordBoundary);
+        }
+        if (newStatus != ChunkView.UNTYPED) {
+            liveMetrics.addLetter(newStatus == ChunkView.CORRECT, wordBoundary);
+        }
+    }
+
+    /**
+     * Displays the next chunk of words from the text loader.
+     */
+    private void nextChunk() {
+        // The last word of the chunk is completed without a typed space
+        liveMetrics.completeWords(1);
+        previousWords.push(currentWords);
+        previousStatus.push(styledStatus);
+        if (followingWords.isEmpty()) {
+            currentWords = textLoader.getNext(); // Load next set of words
+        } else {
+            currentWords = followingWords.pop();
+        }
+        showChunk();
+    }
+
+    /**
+     * Displays again the chunk of words preceding the current one, with the statuses it had when it was left.
+     */
+    private void previousChunk() {
+        if (previousWords.isEmpty()) {
+            return;
+        }
+        // The letters typed in the abandoned chunk no longer count
+        for (int i = 0; i < styledStatus.length; i++) {
+            if (styledStatus[i] != ChunkView.UNTYPED) {
+                countStatusChange(i, styledStatus[i], ChunkView.UNTYPED);
+            }
+        }
+        liveMetrics.completeWords(-1);
+
+        followingWords.push(currentWords);
+        currentWords = previousWords.pop();
+        showChunk();
+        styledStatus = previousStatus.pop();
+        styledLength = currentWords.length();
+
+        // Show the restored statuses as runs of equal status
+        int runCount = 0;
+        for (int i = 0; i < styledStatus.length; i++) {
+            if (runCount > 0 && runStatuses[runCount - 1] == styledStatus[i]) {
+                runLengths[runCount - 1]++;
+            } else {
+                runStarts[runCount] = i;
+                runLengths[runCount] = 1;
+                runStatuses[runCount] = styledStatus[i];
+                runCount++;
+            }
+        }
+        view.setStatus(runStarts, runLengths, runStatuses, runCount);
+    }
+
+    /**
+     * Determines the status of a single character of the current chunk.
+     *
+     * @param index the index of the character within the chunk
+     * @return the status of the character
+     */
+    private byte statusOf(int index) {
+        if (index >= active.length()) {
+            return ChunkView.UNTYPED;
+        }
+        return active.charAt(index) == currentWords.charAt(index) ? ChunkView.CORRECT : ChunkView.INCORRECT;
+    }
+
+    /**
+     * Displays the current chunk as untyped text.
+     */
+    private void showChunk() {
+        ChunkSwapEvent event = new ChunkSwapEvent();
+        event.begin();
+        view.showText(currentWords);
+
+        styledStatus = new byte[currentWords.length()];
+        styledLength = 0;
+        if (runStarts.length < currentWords.length()) {
+            runStarts = new int[currentWords.length()];
+            runLengths = new int[currentWords.length()];
+            runStatuses = new byte[currentWords.length()];
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.length = currentWords.length();
+            event.commit();
+        }
+    }
+
+    /**
+     * Notifies the keystroke listeners of a span of inserted or deleted characters.
+     *
+     * @param text     the text containing the characters
+     * @param from     the start of the span in the text
+     * @param to       the end of the span in the text
+     * @param offset   the offset of the span in the input
+     * @param position the position of the first character within the current chunk, or -1 if it lies before it
+     * @param action   INSERT or DELETE
+     * @param nanoTime the time of the change
+     */
+    private void notifyKeystrokes(CharSequence text, int from, int to, int offset, int position, byte action, long nanoTime) {
+        if (keystrokeListeners.isEmpty()) {
+            return;
+        }
+        for (int i = from; i < to; ) {
+            int codePoint = Character.codePointAt(text, i);
+            int expected = position < 0 ? KeystrokeListener.UNKNOWN : expectedCharAt(position + i - from);
+            for (KeystrokeListener listener : keystrokeListeners) {
+                // Every deleted character is found at the offset of the span once the preceding ones are deleted
+                listener.keystroke(nanoTime, action == KeystrokeListener.INSERT ? offset + i - from : offset,
+                        codePoint, expected, action);
+            }
+            i += Character.charCount(codePoint);
+        }
+    }
+}